@@ -0,0 +1,22 @@
+package ga;
+
+import sm.base.util.clCancelException;
+
+/**
+ * Description:
+ * Objective function which scores many genomes in one call.
+ * <p/>
+ * When the individuals of a population have a batch objective function, the
+ * population gives it all the individuals which need an evaluation at once
+ * (with an evaluation executor - a few batches, one per worker), so the
+ * objective can reuse its scratch data or factorizations over the batch.
+ * g[0..m-1] are the genomes, the scores go to s[0..m-1].  For the bin-to-dec
+ * genomes x holds their decoded phenotypes, a row of width values per genome,
+ * otherwise x is null and width is 0.  The single genome evaluator is still
+ * used when a score is asked for one genome only.
+ * The batches of one population may be scored concurrently, see the
+ * thread-safety contract in Evaluator.
+ */
+public interface BatchEvaluator extends Evaluator {
+    void evaluator(GAGenome[] g, int m, float[] x, int width, float[] s) throws clCancelException;
+}
@@ -15,5 +15,5 @@ package ga;
  */
 
 interface BinaryDecoder {
-    int decode(float[] result, final short[] bits, int offset, int nbits, float minval, float maxval);
+    int decode(float[] result, final GABinaryString bits, int offset, int nbits, float minval, float maxval);
 }
@@ -15,5 +15,5 @@ package ga;
  */
 
 interface BinaryEncoder {
-    int encode(float[] val, short[] binstr, int offset, int nbits, float minval, float maxval);
+    int encode(float[] val, GABinaryString binstr, int offset, int nbits, float minval, float maxval);
 }
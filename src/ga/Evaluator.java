@@ -7,6 +7,16 @@ import sm.base.util.clCancelException;
  * Date: Jul 6, 2004
  * Time: 11:53:08 AM
  * Description:
+ * Objective function of the genome.
+ * <p/>
+ * Thread-safety contract: when the genetic algorithm has an evaluation
+ * executor, the evaluator is called concurrently for different genomes of
+ * the population (never twice at once for the same genome).  Then it must
+ * - keep all its scratch data local to the call: the user data of the genomes
+ * is shared by all of them and can't be used as a buffer;
+ * - guard any shared mutable state (counters, callbacks, caches) itself;
+ * - not use GARandom, the evolution must not depend on the order of evaluation.
+ * Evaluators which can't follow the contract should be used without executor.
  */
 public interface Evaluator {
     float evaluator(GAGenome g) throws clCancelException;
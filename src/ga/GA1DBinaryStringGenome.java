@@ -152,9 +152,7 @@ public class GA1DBinaryStringGenome extends GAGenome {
         public void initializer(final GAGenome c) {
             final GA1DBinaryStringGenome child = (GA1DBinaryStringGenome) c;
             child.resize(Size.ANY_SIZE); // let chrom resize if it can
-            for (int i = child.length() - 1; i >= 0; i--) {
-                child.gene(i, (short) GARandom.GARandomBit()); // initial values are all random
-            }
+            child.randomize(0, child.length()); // initial values are all random, a word at a time
         }
     }
 
@@ -170,6 +168,8 @@ public class GA1DBinaryStringGenome extends GAGenome {
          * better the chance that it will match the desired mutation rate.
          * If nMut is greater than 1, then we round up, so a mutation of 2.2 would
          * be 3 mutations, and 2.9 would be 3 as well.  nMut of 3 would be 3 mutations.
+         * The flip test on each bit is done by skipping the geometrically distributed
+         * gaps between the flipped bits, so it costs one random number per flip.
          */
         public int mutator(final GAGenome c, final float pmut) {
             final GA1DBinaryStringGenome child = (GA1DBinaryStringGenome) c;
@@ -181,18 +181,20 @@ public class GA1DBinaryStringGenome extends GAGenome {
             float nMut = pmut * (float) child.length();
             if (nMut < 1.0) { // we have to do a flip test on each bit
                 nMut = 0;
-                for (i = child.length() - 1; i >= 0; i--) {
-                    if (GARandom.GAFlipCoin(pmut)) {
-                        child.gene(i, (short) (child.gene(i) == 0 ? 1 : 0));
-                        nMut++;
-                    }
+                final double lq = Math.log1p(-pmut);
+                for (i = GARandom.GARandomGap(lq); i < child.length(); i += GARandom.GARandomGap(lq) + 1) {
+                    child.bs.flip(i);
+                    nMut++;
                 }
             } else {       // only flip the number of bits we need to flip
                 for (n = 0; n < nMut; n++) {
                     i = GARandom.GARandomInt(0, child.length() - 1); // the index of the bit to flip
-                    child.gene(i, (short) (child.gene(i) == 0 ? 1 : 0));
+                    child.bs.flip(i);
                 }
             }
+            if (nMut > 0) {
+                child._evaluated = false;
+            }
             return (int) nMut;
         }
     }
@@ -209,6 +211,7 @@ public class GA1DBinaryStringGenome extends GAGenome {
          * two individuals relative to the rest of the population.  This comparison is
          * independent of the population!  (you can do Hamming measure in the scaling
          * object)
+         * The different bits are counted by words (bitCount of the xor).
          */
         public float comparator(final GAGenome a, final GAGenome b) {
             final GA1DBinaryStringGenome sis = (GA1DBinaryStringGenome) a;
@@ -219,10 +222,7 @@ public class GA1DBinaryStringGenome extends GAGenome {
             if (sis.length() == 0) {
                 return 0;
             }
-            float count = (float) 0.0;
-            for (int i = sis.length() - 1; i >= 0; i--) {
-                count += sis.gene(i) == bro.gene(i) ? 0 : 1;
-            }
+            final float count = (float) sis.bs.hamming(bro.bs, 0, 0, sis.length());
             return count / sis.length();
         }
     }
@@ -254,7 +254,14 @@ public class GA1DBinaryStringGenome extends GAGenome {
         userData(u);
         crossover(_OnePointCrossover); // assign the default sexual crossover
         nx = minX = maxX = 0;
-        resize(len);
+        if (len >= 0) {
+            // the bits are zeros until the initializer sets them, so creating
+            // (or cloning) a genome does not draw on the random numbers of the GA
+            bs.resize(len);
+            nx = minX = maxX = len;
+        } else {
+            resize(len);
+        }
     }
 
     /**
@@ -267,7 +274,7 @@ public class GA1DBinaryStringGenome extends GAGenome {
         initializer(_UniformInitializer);
         mutator(_FlipMutator);
         comparator(_BitComparator);
-        bs = new GABinaryString(orig.bs);
+        bs = new GABinaryString(orig.bs.size());
         nx = minX = maxX = 0;
         copy(orig);
     }
@@ -355,6 +362,10 @@ public class GA1DBinaryStringGenome extends GAGenome {
         return eq;
     }
 
+    long hash() {
+        return bs.hash(0, nx);
+    }
+
     final short gene() {
         return gene(0);
     }
@@ -408,9 +419,7 @@ public class GA1DBinaryStringGenome extends GAGenome {
         }
         bs.resize(l);
         if (l > nx) {
-            for (int i = nx; i < l; i++) {
-                bs.bit(i, (short) GARandom.GARandomBit());
-            }
+            bs.randomize(nx, l - nx);
         }
         nx = l;
         _evaluated = false;
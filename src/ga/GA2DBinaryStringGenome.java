@@ -17,7 +17,7 @@ public final class GA2DBinaryStringGenome extends GAGenome {
     private int minY;
     private int maxX;
     private int maxY;
-    private final GABinaryString bs;
+    final GABinaryString bs;
 
     public String className() {
         return "GA2DBinaryStringGenome";
@@ -192,41 +192,36 @@ public final class GA2DBinaryStringGenome extends GAGenome {
         public void initializer(final GAGenome c) {
             final GA2DBinaryStringGenome child = (GA2DBinaryStringGenome) c;
             child.resize(Size.ANY_SIZE, Size.ANY_SIZE);
-            for (int i = child.width() - 1; i >= 0; i--) {
-                for (int j = child.height() - 1; j >= 0; j--) {
-                    child.gene(i, j, (short) GARandom.GARandomBit());
-                }
-            }
+            child.bs.randomize(0, child.size()); // a word at a time
+            child._evaluated = false;
         }
     }
 
     static final class FlipMutator implements Mutator {
         public int mutator(final GAGenome c, final float pmut) {
             final GA2DBinaryStringGenome child = (GA2DBinaryStringGenome) c;
-            int n, m, i, j;
+            int n, m;
             if (pmut <= 0.0) {
                 return 0;
             }
 
             float nMut = pmut * (float) child.size();
-            if (nMut < 1.0) { // we have to do a flip test on each bit
+            if (nMut < 1.0) { // flip test on each bit, by skipping the gaps between the flips
                 nMut = 0;
-                for (i = child.width() - 1; i >= 0; i--) {
-                    for (j = child.height() - 1; j >= 0; j--) {
-                        if (GARandom.GAFlipCoin(pmut)) {
-                            child.gene(i, j, (short) (child.gene(i, j) == 0 ? 1 : 0));
-                            nMut++;
-                        }
-                    }
+                final double lq = Math.log1p(-pmut);
+                for (m = GARandom.GARandomGap(lq); m < child.size(); m += GARandom.GARandomGap(lq) + 1) {
+                    child.bs.flip(m);
+                    nMut++;
                 }
             } else {       // only flip the number of bits we need to flip
                 for (n = 0; n < nMut; n++) {
                     m = GARandom.GARandomInt(0, child.size() - 1);
-                    i = m % child.width();
-                    j = m / child.width();
-                    child.gene(i, j, (short) (child.gene(i, j) == 0 ? 1 : 0));
+                    child.bs.flip(m);
                 }
             }
+            if (nMut > 0) {
+                child._evaluated = false;
+            }
             return (int) nMut;
         }
     }
@@ -235,18 +230,14 @@ public final class GA2DBinaryStringGenome extends GAGenome {
         public float comparator(final GAGenome a, final GAGenome b) {
             final GA2DBinaryStringGenome sis = (GA2DBinaryStringGenome) a;
             final GA2DBinaryStringGenome bro = (GA2DBinaryStringGenome) b;
-            if (sis.size() != bro.size()) {
+            if (sis.width() != bro.width() || sis.height() != bro.height()) {
                 return -1;
             }
             if (sis.size() == 0) {
                 return 0;
             }
-            float count = (float) 0.0;
-            for (int i = sis.width() - 1; i >= 0; i--) {
-                for (int j = sis.height() - 1; j >= 0; j--) {
-                    count += sis.gene(i, j) == bro.gene(i, j) ? 0 : 1;
-                }
-            }
+            // same shape - same layout of the bits, so compare the strings by words
+            final float count = (float) sis.bs.hamming(bro.bs, 0, 0, sis.size());
             return count / sis.size();
         }
     }
@@ -270,7 +261,13 @@ public final class GA2DBinaryStringGenome extends GAGenome {
         crossover(_OnePointCrossover);
         nx = minX = maxX = 0;
         ny = minY = maxY = 0;
-        resize(width, height);
+        if (width >= 0 && height >= 0) {
+            bs.resize(width * height); // zeros until the initializer, no random numbers drawn
+            nx = minX = maxX = width;
+            ny = minY = maxY = height;
+        } else {
+            resize(width, height);
+        }
     }
 
     GA2DBinaryStringGenome(final GA2DBinaryStringGenome orig) {
@@ -351,11 +348,7 @@ public final class GA2DBinaryStringGenome extends GAGenome {
         if (nx != b.nx || ny != b.ny) {
             return false;
         }
-        boolean val = false;
-        for (int j = 0; j < ny && !val; j++) {
-            val = bs.equal(b.bs, j * nx, j * nx, nx) ? false : true;
-        }
-        return val ? false : true;
+        return bs.equal(b.bs, 0, 0, nx * ny);
     }
 
 // specific to this class
@@ -368,6 +361,14 @@ public final class GA2DBinaryStringGenome extends GAGenome {
         return bs.bit(x + nx * y) == value ? value : bs.bit(x + nx * y, value);
     }
 
+    int size() {
+        return nx * ny;
+    }
+
+    long hash() {
+        return bs.hash(0, nx * ny) * 31 + nx;
+    }
+
     public int width() {
         return nx;
     }
@@ -436,15 +437,11 @@ public final class GA2DBinaryStringGenome extends GAGenome {
             final int y = (int) GAUtils.GAMin(ny, h);
             for (int j = y - 1; j >= 0; j--) {
                 bs.move(j * w, j * nx, nx);
-                for (int i = nx; i < w; i++) {
-                    bs.bit(j * w + i, (short) GARandom.GARandomBit());
-                }
+                bs.randomize(j * w + nx, w - nx);
             }
         }
         if (h > ny) {        // change in height is always new bits
-            for (int i = w * ny; i < w * h; i++) {
-                bs.bit(i, (short) GARandom.GARandomBit());
-            }
+            bs.randomize(w * ny, w * (h - ny));
         }
         nx = w;
         ny = h;
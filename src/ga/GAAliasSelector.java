@@ -0,0 +1,104 @@
+package ga;
+
+import sm.base.util.clCancelException;
+
+/**
+ * Description:
+ * ----------------------------------------------------------------------------
+ * Alias method roulette wheel
+ * <p/>
+ * Fitness-proportional selection with the same likelihoods as the roulette
+ * wheel, but the wheel is an alias table (Walker, Vose): the update builds it in
+ * O(n) and each selection takes one random number and one look-up, O(1), with
+ * no partial sums to search.  The population need not be sorted.
+ * ----------------------------------------------------------------------------
+ */
+public final class GAAliasSelector extends GASelectionScheme {
+    private int n;
+    private double[] prob;  // probability to keep the column
+    private int[] alias;    // the other individual of the column
+    private double[] w;     // the weights, scaled so that the mean is 1
+    private int[] work;     // small columns from the front, large ones from the back
+
+    public String className() {
+        return "GAAliasSelector";
+    }
+
+    public int classID() {
+        return AliasSelection;
+    }
+
+    public GAAliasSelector() {
+        super(SCALED);
+        n = 0;
+    }
+
+    private GAAliasSelector(final GAAliasSelector orig) {
+        super(orig);
+        n = 0;
+    }
+
+    void delete() {
+    }
+
+    public Object clone() {
+        return new GAAliasSelector(this);
+    }
+
+    GAGenome select() {
+        final double u = GARandom.GARandomDouble() * n;
+        int i = (int) u;
+        if (i >= n) {
+            i = n - 1;
+        }
+        return pop.individual(u - i < prob[i] ? i : alias[i],
+                              which == SCALED ? GAPopulation.SortBasis.SCALED : GAPopulation.SortBasis.RAW);
+    }
+
+    /**
+     * Vose's construction: every column of the table holds the rest of a small
+     * weight (below the mean) topped up by a large one.
+     */
+    void update() throws clCancelException {
+        if (pop.size() != n) {
+            n = pop.size();
+            prob = new double[n];
+            alias = new int[n];
+            w = new double[n];
+            work = new int[n];
+        }
+        final double sum = weights(w);
+        int small = 0;
+        int large = n;
+        for (int i = 0; i < n; i++) {
+            w[i] = w[i] * n / sum;
+            if (w[i] < 1.0) {
+                work[small++] = i;
+            } else {
+                work[--large] = i;
+            }
+        }
+        while (small > 0 && large < n) {
+            final int s = work[--small];
+            final int l = work[large++];
+            prob[s] = w[s];
+            alias[s] = l;
+            w[l] = w[l] + w[s] - 1.0;
+            if (w[l] < 1.0) {
+                work[small++] = l;
+            } else {
+                work[--large] = l;
+            }
+        }
+        while (large < n) {
+            prob[work[large]] = 1.0;
+            alias[work[large]] = work[large];
+            large++;
+        }
+        while (small > 0) {     // the round-off leftovers
+            small--;
+            prob[work[small]] = 1.0;
+            alias[work[small]] = work[small];
+        }
+    }
+}
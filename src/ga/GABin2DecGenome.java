@@ -8,6 +8,9 @@ package ga;
  * ----------------------------------------------------------------------------
  * The phenotype does reference counting, so we can make a copy of it for our
  * own use and we don't have to worry about extra overhead.
+ * The decoded values are cached.  All of them are decoded in one pass when the
+ * first one is requested after a change of the bits (mutation, crossover, copy),
+ * of the phenotype map or of the decoder.
  * ----------------------------------------------------------------------------
  */
 
@@ -15,6 +18,8 @@ public final class GABin2DecGenome extends GA1DBinaryStringGenome {
     private GABin2DecPhenotype ptype;
     private BinaryEncoder encode = new GABinCvt();   // function we use to encode the bits
     private BinaryDecoder decode = new GABinCvt();   // function we use to decode the bits
+    private float[] values;   // cache of the decoded phenotypes
+    private int decoded = -1; // the mods of the bit string the cache was filled at, -1 - none
 
     public String className() {
         return "GABin2DecGenome";
@@ -88,6 +93,7 @@ public final class GABin2DecGenome extends GA1DBinaryStringGenome {
             super.copy(c);
             encode = c.encode;
             decode = c.decode;
+            decoded = -1;
             if (ptype != null) {
                 ptype = c.ptype;
             } else {
@@ -117,6 +123,7 @@ public final class GABin2DecGenome extends GA1DBinaryStringGenome {
      */
     GABin2DecPhenotype phenotypes(final GABin2DecPhenotype p) {
         ptype = p;
+        decoded = -1;
         super.resize(p.size());
         return ptype;
     }
@@ -151,7 +158,8 @@ public final class GABin2DecGenome extends GA1DBinaryStringGenome {
             val = val < ptype.min(n) ? ptype.min(n) : ptype.max(n);
         }
         final float[] oval = new float[]{val};
-        encode.encode(oval, bs.data, ptype.offset(n), ptype.length(n), ptype.min(n), ptype.max(n));
+        encode.encode(oval, bs, ptype.offset(n), ptype.length(n), ptype.min(n), ptype.max(n));
+        _evaluated = false;
         return oval[0];
     }
 
@@ -159,18 +167,44 @@ public final class GABin2DecGenome extends GA1DBinaryStringGenome {
      * We access the data string directly here.  This could be dangerous (if the
      * bitstream ever changes on us it will affect the way this method sees the
      * data string).
-     * Eventually we may need to cache the decimal values in an array of floats,
-     * but for now we call the converter routine every time each phenotype is
-     * requested.
+     * The value comes from the cache, which is refilled if the bits have changed.
      */
     public float phenotype(final int n) {
         if (n >= ptype.nPhenotypes()) {
             GAError.GAErr(className(), "phenotype", GAError.gaErrBadPhenotypeID);
             return (float) 0.0;
         }
+        return decoded().values[n];
+    }
+
+    /**
+     * Copy all the decoded values to out (at least nPhenotypes long), so the
+     * evaluator can read them without an allocation per value.
+     */
+    public float[] phenotypes(final float[] out) {
+        return phenotypes(out, 0);
+    }
+
+    float[] phenotypes(final float[] out, final int off) {
+        System.arraycopy(decoded().values, 0, out, off, ptype.nPhenotypes());
+        return out;
+    }
+
+    private GABin2DecGenome decoded() {
+        if (decoded == bs.mods && decoded != -1) {
+            return this;
+        }
+        final int n = ptype.nPhenotypes();
+        if (values == null || values.length != n) {
+            values = new float[n];
+        }
         final float[] val = new float[1];
-        decode.decode(val, bs.data, ptype.offset(n), ptype.length(n), ptype.min(n), ptype.max(n));
-        return val[0];
+        for (int i = 0; i < n; i++) {
+            decode.decode(val, bs, ptype.offset(i), ptype.length(i), ptype.min(i), ptype.max(i));
+            values[i] = val[0];
+        }
+        decoded = bs.mods;
+        return this;
     }
 
     private void encoder(final BinaryEncoder e) {
@@ -180,6 +214,7 @@ public final class GABin2DecGenome extends GA1DBinaryStringGenome {
 
     private void decoder(final BinaryDecoder d) {
         decode = d;
+        decoded = -1;
         _evaluated = false;
     }
 }
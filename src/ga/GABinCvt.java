@@ -42,10 +42,11 @@ final class GABinCvt implements BinaryEncoder, BinaryDecoder {
      * with absolutely no roundoff error.  Practically, this means that we cannot do
      * anything greater than the number of bits needed to represent the mantissa of
      * the highest floating precision number on the system.
+     * The bits are written as one word, the 0th bit is the most significant one.
      * ----------------------------------------------------------------------------
      */
-    public int encode(final float[] val, final short[] binstr, final int offset, final int nbits, final float minval,
-                      final float maxval) {
+    public int encode(final float[] val, final GABinaryString binstr, final int offset, final int nbits,
+                      final float minval, final float maxval) {
         if (binstr == null || nbits == 0) {
             return 1;
         }
@@ -53,12 +54,11 @@ final class GABinCvt implements BinaryEncoder, BinaryDecoder {
             return 1;
         }
 
-        final long nintervals = 1;
-        int status = GACheckEncoding(val, nbits, minval, maxval, nintervals);
-        for (int i = 0; i < nbits; i++) {
-            binstr[i] = 0;
-        }
-        status = _GAEncodeBase(2, nintervals, binstr, offset, 0, nbits - 1) ? 1 : status;
+        final int n = nbits < _GA_MAX_BITS ? nbits : _GA_MAX_BITS - 1;
+        final long nintervals = (1L << n) - 1;
+        final long count = (long) ((val[0] - minval) / ((maxval - minval) / (double) nintervals));
+        final int status = GACheckEncoding(val, nbits, minval, maxval, nintervals);
+        binstr.bits(offset, n, Long.reverse(count) >>> 64 - n);
         return status;
     }
 
@@ -70,26 +70,21 @@ final class GABinCvt implements BinaryEncoder, BinaryDecoder {
      * specify too many bits, then we reset to the max we can handle and do the
      * conversion using those bits.
      * We return 1 if there was a problem, otherwise 0.
+     * The bits are read as one word and reversed, the 0th bit is most significant.
      * ----------------------------------------------------------------------------
      */
-    public int decode(final float[] result, final short[] bits, final int offset, final int nbits, final float minval,
-                      final float maxval) {
+    public int decode(final float[] result, final GABinaryString bits, final int offset, final int nbits,
+                      final float minval, final float maxval) {
 
         if (bits == null || nbits == 0) {
             result[0] = (float) 0.0;
             return 1;
         }
         final int status = GACheckDecoding(nbits);
+        final int n = nbits < _GA_MAX_BITS ? nbits : _GA_MAX_BITS - 1;
 
-        long maxint = 1;
-        float sum = (float) 0.0;
-        for (int i = nbits - 1; i > -1; i--) {  // 0th bit is most significant
-            if (bits[i + offset] != 0) {
-                sum += (float) maxint;
-            }
-            maxint <<= 1;
-        }
-        maxint--;
+        final float sum = (float) (Long.reverse(bits.bits(offset, n)) >>> 64 - n);
+        final long maxint = (1L << n) - 1;
         result[0] = minval + (maxval - minval) * sum / (float) maxint;
         return status;
     }
@@ -138,29 +133,5 @@ final class GABinCvt implements BinaryEncoder, BinaryDecoder {
         return 0;
     }
 
-    /**
-     * ----------------------------------------------------------------------------
-     * Utility routine to encode bits of a decimal number.  This routine recursively
-     * loops through the decimal value and grabs the remainder (modulo the base) and
-     * sticks the result into each 'bit' (if base is 2 then they're bits, otherwise
-     * they're the equivalent for whatever base you're doing).
-     * This will only do unsigned integers.
-     * ----------------------------------------------------------------------------
-     */
-    private static boolean _GAEncodeBase(final int base, final long val, final short[] binstr, final int offset,
-                                         final int n, final int c) {
-        boolean status = false;
-        if (c < 0) {
-            return true;       // if this happens we should post an error
-        }
-        // it means we didn't get a perfect encoding
-        binstr[c + offset] = (short) ((byte) val % base);
-        final long quotient = val / base;
-        if (quotient != 0) {
-            status = _GAEncodeBase(base, quotient, binstr, offset, n, c - 1);
-        }
-        return status;
-    }
-
 
 }
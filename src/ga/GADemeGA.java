@@ -0,0 +1,252 @@
+package ga;
+
+import sm.base.util.clCancelException;
+import sm.base.util.clWorkQueue;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Description:
+ * ----------------------------------------------------------------------------
+ * Deme (island model) genetic algorithm
+ * <p/>
+ * This GA evolves a number of sub-populations (demes, islands) independently,
+ * each of them with the simple GA, and exchanges a few individuals between
+ * them every so often.  The islands step in parallel on the executor (see
+ * evaluationExecutor), each with its own random generator split off the
+ * generator of this GA, so a run with a given seed does not depend on the
+ * number of threads.
+ * <p/>
+ * migration
+ * Every migrationInterval generations the nMigration best individuals of each
+ * island are copied into the next island (RING topology) or into a randomly
+ * chosen other island (RANDOM topology), where they replace the worst ones.
+ * The emigrants are all chosen before any island is changed.
+ * <p/>
+ * statistics
+ * The population of this GA holds the copies of the individuals of all the
+ * islands, the statistics are taken on it, so the best individual, the
+ * on-line/off-line measures and the scores file cover all the islands.  The
+ * operation counters are the sums of the counters of the islands.
+ * <p/>
+ * populationSize
+ * The size of each island, the merged population is nPopulations times that.
+ * ----------------------------------------------------------------------------
+ */
+public final class GADemeGA extends GAGeneticAlgorithm {
+    interface Topology {
+        int RING = 0;
+        int RANDOM = 1;
+    }
+
+    final GASimpleGA[] deme;
+    private int nmig = gaDefNMig;   // how many individuals migrate from each island
+    private int migint = 1;         // every how many generations
+    private int topo = Topology.RING;
+    private ExecutorService exec;   // the islands step on it, null - one after another
+
+    public String className() {
+        return "GADemeGA";
+    }
+
+    public int classID() {
+        return DemeGA;
+    }
+
+    public GADemeGA(final GAGenome c) throws clCancelException {
+        this(c, gaDefNPop);
+    }
+
+    public GADemeGA(final GAGenome c, final int npop) throws clCancelException {
+        super(c);
+        deme = new GASimpleGA[npop];
+        for (int i = 0; i < npop; i++) {
+            deme[i] = new GASimpleGA(c);
+        }
+        populationSize(pop.size());
+    }
+
+    public int nPopulations() {
+        return deme.length;
+    }
+
+    public int nMigration(final int n) {
+        return nmig = n;
+    }
+
+    public int migrationInterval(final int n) {
+        return migint = n > 0 ? n : 1;
+    }
+
+    public int topology(final int t) {
+        return topo = t;
+    }
+
+    public int populationSize(final int n) throws clCancelException {
+        for (int i = 0; i < deme.length; i++) {
+            deme[i].populationSize(n);
+        }
+        super.populationSize(n * deme.length);
+        return n;
+    }
+
+    public GAScalingScheme scaling(final GAScalingScheme s) {
+        for (int i = 0; i < deme.length; i++) {
+            deme[i].scaling(s);
+        }
+        return super.scaling(s);
+    }
+
+    public GASelectionScheme selector(final GASelectionScheme s) {
+        for (int i = 0; i < deme.length; i++) {
+            deme[i].selector(s);
+        }
+        return super.selector(s);
+    }
+
+    boolean elitist(final boolean flag) {
+        for (int i = 0; i < deme.length; i++) {
+            deme[i].elitist(flag);
+        }
+        return flag;
+    }
+
+    int minimaxi(final int m) {
+        for (int i = 0; i < deme.length; i++) {
+            deme[i].minimaxi(m);
+        }
+        return super.minimaxi(m);
+    }
+
+    /**
+     * The executor is used to step the islands in parallel; the individuals of
+     * an island are evaluated one after another by its thread.
+     */
+    public ExecutorService evaluationExecutor(final ExecutorService e) {
+        return exec = e;
+    }
+
+    void objectiveFunction(final Evaluator f) {
+        super.objectiveFunction(f);
+        for (int i = 0; i < deme.length; i++) {
+            deme[i].objectiveFunction(f);
+        }
+    }
+
+    /**
+     * The islands get the parameters of this GA and their own random generators,
+     * then they are initialized (and evaluated) in parallel.
+     */
+    void initialize(final int seed) throws clCancelException {
+        final GARandomGenerator g = GARandom.GARandomGenerator();
+        for (int i = 0; i < deme.length; i++) {
+            deme[i].pCrossover(pCrossover());
+            deme[i].pMutation(pMutation());
+            if (scross != null) {
+                deme[i].crossover(scross);
+            }
+            deme[i].randomGenerator(g.split());
+        }
+        run(true);
+        merge();
+        stats.reset(pop);
+        count();
+    }
+
+    void step() throws clCancelException {
+        run(false);
+        if ((stats.generation() + 1) % migint == 0) {
+            migrate();
+        }
+        merge();
+        stats.update(pop);
+        count();
+    }
+
+    private void migrate() throws clCancelException {
+        final int n = deme.length;
+        if (n < 2 || nmig <= 0) {
+            return;
+        }
+        final GAGenome[][] emigrants = new GAGenome[n][];
+        for (int i = 0; i < n; i++) {
+            final int m = Math.min(nmig, deme[i].pop.size());
+            emigrants[i] = new GAGenome[m];
+            for (int k = 0; k < m; k++) {
+                emigrants[i][k] = (GAGenome) deme[i].pop.best(k).clone();
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            int to = (i + 1) % n;
+            if (topo == Topology.RANDOM) {
+                to = GARandom.GARandomInt(0, n - 2);
+                if (to >= i) {
+                    to++;
+                }
+            }
+            for (int k = 0; k < emigrants[i].length; k++) {
+                deme[to].pop.replace(emigrants[i][k], GAPopulation.Replacement.WORST);
+            }
+            stats.numrep += emigrants[i].length;
+        }
+    }
+
+    /**
+     * Copy the individuals of the islands into the population of this GA.  The
+     * scores are copied too, so the evaluation below only refreshes the flags.
+     */
+    private void merge() throws clCancelException {
+        int k = 0;
+        for (int i = 0; i < deme.length; i++) {
+            for (int j = 0; j < deme[i].pop.size(); j++) {
+                pop.individual(k++).copy(deme[i].pop.individual(j));
+            }
+        }
+        pop.evaluate(true);
+    }
+
+    private void count() {
+        int numrep = stats.numrep;
+        stats.numsel = stats.numcro = stats.nummut = stats.numeval = 0;
+        for (int i = 0; i < deme.length; i++) {
+            stats.numsel += deme[i].stats.numsel;
+            stats.numcro += deme[i].stats.numcro;
+            stats.nummut += deme[i].stats.nummut;
+            stats.numeval += deme[i].stats.numeval;
+        }
+        stats.numrep = numrep;
+    }
+
+    /**
+     * Initialize or step all the islands.  Each island runs with its own random
+     * generator bound to the thread which took it.  The calling thread takes
+     * islands too and waits only for the ones taken by the helpers.
+     */
+    private void run(final boolean init) throws clCancelException {
+        new Islands(deme, init).run(exec);
+    }
+
+    private static final class Islands extends clWorkQueue {
+        private final GASimpleGA[] d;
+        private final boolean init;
+
+        private Islands(final GASimpleGA[] demes, final boolean initialize) {
+            super(demes.length, "Evolution is interrupted!");
+            d = demes;
+            init = initialize;
+        }
+
+        protected void runTask(final int i, final Object state) throws clCancelException {
+            final GARandomGenerator prev = GARandom.GAUseGenerator(d[i].randomGenerator());
+            try {
+                if (init) {
+                    d[i].initialize(0);
+                } else {
+                    d[i].step();
+                }
+            } finally {
+                GARandom.GAUseGenerator(prev);
+            }
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package ga;
+
+import sm.base.util.clCancelException;
+
+/**
+ * Description:
+ * ----------------------------------------------------------------------------
+ * Early stopping terminator
+ * <p/>
+ * Stops the evolution as soon as any of the enabled criteria holds, the
+ * number of generations of the GA is always the upper limit:
+ * stall        - the best score ever found did not get better for the given
+ *                number of generations;
+ * improvement  - the best score ever found got better by less than the given
+ *                fraction (of its absolute value) over the given window;
+ * population   - the average score of the population is within the given
+ *                fraction of its best score;
+ * time         - the wall clock time since the start of the evolution exceeds
+ *                the given number of milliseconds;
+ * evaluations  - the objective function was called the given number of times
+ *                (the hits of the evaluation cache are not counted).
+ * A criterion is off while its setting is 0 (the default).  The reason of the
+ * stop is recorded in the statistics of the GA (see GAStatistics.Termination).
+ * The terminator keeps the history of the run, so every GA needs its own one;
+ * the history starts over at generation 0 (a new improvement window is used
+ * from then on).
+ * ----------------------------------------------------------------------------
+ */
+public final class GAEarlyStopping implements Terminator {
+    private int stall;            // generations without a better score
+    private int window;           // generations over which the improvement is measured
+    private float improvement;    // least relative improvement over the window
+    private float spread;         // relative distance of the average from the best
+    private long millis;          // wall clock budget
+    private long evaluations;     // objective function calls budget
+
+    private long start;           // when the evolution started
+    private float best;           // the best score so far
+    private int last;             // generation in which it was found
+    private float[] history;      // the best score of the last window+1 generations
+
+    public int stall(final int n) {
+        return stall = n > 0 ? n : 0;
+    }
+
+    public float improvement(final int n, final float r) {
+        window = n > 0 ? n : 0;
+        history = null;
+        return improvement = r;
+    }
+
+    public float populationConvergence(final float r) {
+        return spread = r > 0 ? r : 0;
+    }
+
+    public long timeLimit(final long ms) {
+        return millis = ms > 0 ? ms : 0;
+    }
+
+    public long evaluationLimit(final long n) {
+        return evaluations = n > 0 ? n : 0;
+    }
+
+    public boolean terminator(final GAGeneticAlgorithm ga) throws clCancelException {
+        final GAStatistics stats = ga.statistics();
+        final int gen = stats.generation();
+        final boolean max = ga.minimaxi() == GAGeneticAlgorithm.MAXIMIZE;
+        final float b = max ? stats.maxEver() : stats.minEver();
+        if (gen == 0) {
+            start = System.currentTimeMillis();
+            best = b;
+            last = 0;
+            history = window > 0 ? new float[window + 1] : null;
+        } else if (max ? b > best : b < best) {
+            best = b;
+            last = gen;
+        }
+        if (history != null) {
+            history[gen % history.length] = b;
+        }
+
+        if (gen >= ga.nGenerations()) {
+            return stop(stats, GAStatistics.Termination.GENERATIONS, "generation " + gen);
+        }
+        if (evaluations > 0 && stats.objectiveCalls() >= evaluations) {
+            return stop(stats, GAStatistics.Termination.EVALUATIONS, stats.objectiveCalls() + " evaluations");
+        }
+        if (millis > 0 && System.currentTimeMillis() - start >= millis) {
+            return stop(stats, GAStatistics.Termination.TIME, (System.currentTimeMillis() - start) + " ms");
+        }
+        if (stall > 0 && gen - last >= stall) {
+            return stop(stats, GAStatistics.Termination.STALL, "no better score in " + (gen - last) + " generations");
+        }
+        if (history != null && gen >= window) {
+            final float old = history[(gen - window) % history.length];
+            final float d = max ? b - old : old - b;
+            if (d <= improvement * Math.abs(old)) {
+                return stop(stats, GAStatistics.Termination.IMPROVEMENT,
+                            "improvement " + d + " in " + window + " generations");
+            }
+        }
+        if (spread > 0) {
+            final float top = max ? ga.pop.max() : ga.pop.min();
+            final float ave = ga.pop.ave();
+            if (Math.abs(top - ave) <= spread * Math.max(Math.abs(top), Math.abs(ave))) {
+                return stop(stats, GAStatistics.Termination.POPULATION, "average " + ave + " best " + top);
+            }
+        }
+        return false;
+    }
+
+    private static boolean stop(final GAStatistics stats, final int reason, final String why) {
+        stats.terminated(reason, why);
+        return true;
+    }
+}
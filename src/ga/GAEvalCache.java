@@ -0,0 +1,156 @@
+package ga;
+
+import sm.base.util.clCancelException;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Description:
+ * ----------------------------------------------------------------------------
+ * Evaluation cache
+ * <p/>
+ * An objective function wrapper which remembers the scores of the last
+ * evaluated genomes.  The genomes are looked up by their 64 bit hash and then
+ * checked for equality, so a collision of the hashes gives a miss, never a
+ * wrong score.  When the cache is full the least recently used score goes.
+ * Only the genomes which define hash (the binary strings) can be cached, and
+ * the objective must give the same score for the same genome.
+ * The cache may be shared by the threads of the parallel evaluator: the
+ * look-ups are synchronized, the objective itself is called outside the lock
+ * (two threads may evaluate the same new genome at the same time, then both
+ * count as misses).
+ * The cache takes the batches too: the hits are answered from the cache, the
+ * misses go to the objective in one batch call if it is a batch objective
+ * function, one by one otherwise.  A genome which comes twice in a batch is
+ * evaluated once (and counts as a hit the second time, as it would one by one).
+ * ----------------------------------------------------------------------------
+ */
+public final class GAEvalCache implements BatchEvaluator {
+    private final Evaluator objective;
+    @SuppressWarnings("rawtypes")
+    private final LinkedHashMap map;
+    private long hits;
+    private long misses;
+
+    private static final class Entry {
+        private final GAGenome genome; // own copy of the evaluated genome
+        private final float score;
+
+        private Entry(final GAGenome g, final float s) {
+            genome = g;
+            score = s;
+        }
+    }
+
+    @SuppressWarnings({"rawtypes", "serial"})
+    GAEvalCache(final Evaluator f, final int capacity) {
+        objective = f;
+        map = new LinkedHashMap(capacity * 4 / 3 + 1, 0.75f, true) {
+            protected boolean removeEldestEntry(final Map.Entry eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    Evaluator objective() {
+        return objective;
+    }
+
+    @SuppressWarnings("unchecked")
+    public float evaluator(final GAGenome g) throws clCancelException {
+        final Long key = Long.valueOf(g.hash());
+        synchronized (this) {
+            final Entry e = (Entry) map.get(key);
+            if (e != null && e.genome.equal(g)) {
+                hits++;
+                return e.score;
+            }
+            misses++;
+        }
+        final float score = objective.evaluator(g);
+        final GAGenome copy = (GAGenome) g.clone();
+        synchronized (this) {
+            map.put(key, new Entry(copy, score));
+        }
+        return score;
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void evaluator(final GAGenome[] g, final int m, final float[] x, final int width, final float[] s)
+            throws clCancelException {
+        if (!(objective instanceof BatchEvaluator)) {
+            for (int i = 0; i < m; i++) {
+                s[i] = evaluator(g[i]);
+            }
+            return;
+        }
+        final Long[] keys = new Long[m];
+        for (int i = 0; i < m; i++) {
+            keys[i] = Long.valueOf(g[i].hash());
+        }
+        final int[] miss = new int[m];
+        final int[] same = new int[m];  // earlier miss with the same genome, -1 - none
+        final HashMap first = new HashMap();
+        int k = 0;
+        synchronized (this) {
+            for (int i = 0; i < m; i++) {
+                final Entry e = (Entry) map.get(keys[i]);
+                final Integer j = (Integer) first.get(keys[i]);
+                same[i] = -1;
+                if (e != null && e.genome.equal(g[i])) {
+                    hits++;
+                    s[i] = e.score;
+                } else if (j != null && g[j.intValue()].equal(g[i])) {
+                    hits++;
+                    same[i] = j.intValue();
+                } else {
+                    misses++;
+                    miss[k++] = i;
+                    first.put(keys[i], Integer.valueOf(i));
+                }
+            }
+        }
+        if (k == 0) {
+            return;
+        }
+        final GAGenome[] mg = new GAGenome[k];
+        final float[] mx = x != null ? new float[k * width] : null;
+        final float[] ms = new float[k];
+        for (int j = 0; j < k; j++) {
+            mg[j] = g[miss[j]];
+            if (mx != null) {
+                System.arraycopy(x, miss[j] * width, mx, j * width, width);
+            }
+        }
+        ((BatchEvaluator) objective).evaluator(mg, k, mx, width, ms);
+        final GAGenome[] copies = new GAGenome[k];
+        for (int j = 0; j < k; j++) {
+            s[miss[j]] = ms[j];
+            copies[j] = (GAGenome) mg[j].clone();
+        }
+        for (int i = 0; i < m; i++) {
+            if (same[i] >= 0) {
+                s[i] = s[same[i]];
+            }
+        }
+        synchronized (this) {
+            for (int j = 0; j < k; j++) {
+                map.put(keys[miss[j]], new Entry(copies[j], ms[j]));
+            }
+        }
+    }
+
+    public synchronized long hits() {
+        return hits;
+    }
+
+    public synchronized long misses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return map.size();
+    }
+}
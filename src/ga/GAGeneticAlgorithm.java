@@ -2,6 +2,8 @@ package ga;
 
 import sm.base.util.clCancelException;
 
+import java.util.concurrent.ExecutorService;
+
 /**
  * User: Oleg
  * Date: Jul 2, 2004
@@ -29,18 +31,25 @@ import sm.base.util.clCancelException;
  * This method is provided as a convenience so that you don't have to increment
  * the GA generation-by-generation by hand.  If you do decide to do it by hand,
  * be sure that you initialize before you start evolving!
+ * All the random numbers of the run are drawn from the generator of the GA,
+ * which is bound to the evolving thread for the time of evolve.  With a non-zero
+ * seed the generator is made of the seed, so the run is the same whatever the
+ * other threads (or the population evaluator helpers) do.  With the seed 0 the
+ * generator set by randomGenerator is used, a new stream split off the master
+ * GARandom generator if none was set.
  * ----------------------------------------------------------------------------
  */
 
-abstract class GAGeneticAlgorithm implements GAID {
-    static final int MINIMIZE = -1;
-    static final int MAXIMIZE = 1;
+public abstract class GAGeneticAlgorithm implements GAID {
+    public static final int MINIMIZE = -1;
+    public static final int MAXIMIZE = 1;
 
     GAStatistics stats;
     GAParameterList params;
     GAPopulation pop;
     private Terminator cf;  // function for determining done-ness
     private Object ud;      // pointer to user data structure
+    private GARandomGenerator rng; // random numbers of the run
 
     private int ngen;
     private int nconv;
@@ -244,7 +253,7 @@ abstract class GAGeneticAlgorithm implements GAID {
         across = ga.across;
     }
 
-    private boolean done() {
+    private boolean done() throws clCancelException {
         return cf.terminator(this);
     }
 
@@ -257,15 +266,34 @@ abstract class GAGeneticAlgorithm implements GAID {
     }
 
     public final void evolve(final int seed) throws clCancelException {
-        initialize(seed);
-        while (!done()) {
-            step();
-        }
-        if (stats.flushFrequency() > 0) {
-            stats.flushScores();
+        rng = seed != 0 ? new GAXoshiro(seed) : rng != null ? rng : GARandom.GARandomSplit();
+        final GARandomGenerator prev = GARandom.GAUseGenerator(rng);
+        try {
+            initialize(seed);
+            while (!done()) {
+                step();
+            }
+            if (stats.flushFrequency() > 0) {
+                stats.flushScores();
+            }
+        } finally {
+            stats.closeScores();
+            GARandom.GAUseGenerator(prev);
         }
     }
 
+    public final GARandomGenerator randomGenerator() {
+        return rng;
+    }
+
+    /**
+     * Set the generator for the next evolve without a seed, e.g. a stream split
+     * off the generator of another GA.
+     */
+    public final GARandomGenerator randomGenerator(final GARandomGenerator g) {
+        return rng = g;
+    }
+
     final Object userData() {
         return ud;
     }
@@ -278,7 +306,12 @@ abstract class GAGeneticAlgorithm implements GAID {
         return cf;
     }
 
-    final Terminator terminator(final Terminator f) {
+    /**
+     * Set the termination function, TerminateUponGeneration by default.  See
+     * GAEarlyStopping for the stall, improvement, convergence, time and
+     * evaluation budget criteria.
+     */
+    public final Terminator terminator(final Terminator f) {
         return cf = f;
     }
 
@@ -455,7 +488,7 @@ abstract class GAGeneticAlgorithm implements GAID {
         return status;
     }
 
-    int minimaxi() {
+    public int minimaxi() {
         return minmax;
     }
 
@@ -478,7 +511,7 @@ abstract class GAGeneticAlgorithm implements GAID {
         return minimaxi(MAXIMIZE);
     }
 
-    private int nGenerations() {
+    public final int nGenerations() {
         return ngen;
     }
 
@@ -547,7 +580,7 @@ abstract class GAGeneticAlgorithm implements GAID {
         return stats.convergence();
     }
 
-    private int generation() {
+    public final int generation() {
         return stats.generation();
     }
 
@@ -588,7 +621,11 @@ abstract class GAGeneticAlgorithm implements GAID {
         return stats.selectScores();
     }
 
-    final int selectScores(final int w) {
+    /**
+     * Which scores go to the score file, an or of the GAStatistics flags
+     * (Mean, Maximum, Minimum, Deviation, Diversity, Evaluations).
+     */
+    public final int selectScores(final int w) {
         params.set(GADefs.gaNselectScores, w);
         return stats.selectScores(w);
     }
@@ -647,10 +684,47 @@ abstract class GAGeneticAlgorithm implements GAID {
         return pop.selector();
     }
 
+    /**
+     * Set the executor used to evaluate the populations.  With an executor the
+     * objective function is called concurrently for different genomes, so it must
+     * follow the contract described in Evaluator.  Pass null to go back to the
+     * default (serial) population evaluator.
+     */
+    public ExecutorService evaluationExecutor(final ExecutorService e) {
+        pop.evaluator(e == null ? (PEvaluator) pop : new GAParallelEvaluator(e));
+        return e;
+    }
+
+    /**
+     * Put a cache of the given capacity in front of the objective function, so a
+     * genome which was already evaluated gets its score without the objective call
+     * (see GAEvalCache).  The hits and misses are counted in the statistics.
+     * Pass 0 to go back to the plain objective function.
+     */
+    public final GAEvalCache evaluationCache(final int capacity) {
+        Evaluator f = pop.individual(0).evaluator();
+        if (f instanceof GAEvalCache) {
+            f = ((GAEvalCache) f).objective();
+        }
+        final GAEvalCache c = capacity > 0 ? new GAEvalCache(f, capacity) : null;
+        objectiveFunction(c != null ? c : f);
+        stats.evaluationCache(c);
+        return c;
+    }
+
     GASelectionScheme selector(final GASelectionScheme s) {
         return pop.selector(s);
     }
 
+    /**
+     * Estimate the population diversity (recordDiversity) from m random pairs of
+     * individuals instead of all the pairs, for the populations too large for the
+     * n*n table of the similarities.  0 measures all the pairs.
+     */
+    public int diversitySample(final int m) {
+        return pop.diversitySample(m);
+    }
+
     void objectiveFunction(final Evaluator f) {
         for (int i = 0; i < pop.size(); i++) {
             pop.individual(i).evaluator(f);
@@ -669,15 +743,50 @@ abstract class GAGeneticAlgorithm implements GAID {
      */
     static final class TerminateUponGeneration implements Terminator {
         public boolean terminator(final GAGeneticAlgorithm ga) {
-            return ga.generation() < ga.nGenerations() ? false : true;
+            if (ga.generation() < ga.nGenerations()) {
+                return false;
+            }
+            ga.stats.terminated(GAStatistics.Termination.GENERATIONS, "generation " + ga.generation());
+            return true;
         }
     }
-    /*
-    static final class TerminateUponConvergence implements Terminator{
 
+    /**
+     * Stop when the ratio of the best score nConvergence generations ago to the
+     * current best score (see convergence) reaches pConvergence.  When maximizing
+     * the ratio climbs to 1 from below, when minimizing it falls to 1 from above.
+     */
+    static final class TerminateUponConvergence implements Terminator {
+        public boolean terminator(final GAGeneticAlgorithm ga) {
+            final boolean val;
+            if (ga.minimaxi() == MINIMIZE) {
+                val = !(ga.convergence() == 0 || ga.convergence() > ga.pConvergence());
+            } else {
+                val = !(ga.convergence() < ga.pConvergence());
+            }
+            if (val) {
+                ga.stats.terminated(GAStatistics.Termination.CONVERGENCE, "convergence " + ga.convergence());
+            }
+            return val;
+        }
     }
 
-    static final class TerminateUponPopConvergence implements Terminator{
-
-    }*/
+    /**
+     * Stop when the ratio of the average score of the population to its best
+     * score reaches pConvergence (the scores should be positive).
+     */
+    static final class TerminateUponPopConvergence implements Terminator {
+        public boolean terminator(final GAGeneticAlgorithm ga) throws clCancelException {
+            final float best = ga.minimaxi() == MINIMIZE ? ga.pop.min() : ga.pop.max();
+            if (best == 0) {
+                return false;
+            }
+            final float ratio = ga.pop.ave() / best;
+            final boolean val = ga.minimaxi() == MINIMIZE ? ratio > ga.pConvergence() : ratio >= ga.pConvergence();
+            if (val) {
+                ga.stats.terminated(GAStatistics.Termination.POPULATION, "mean to best " + ratio);
+            }
+            return val;
+        }
+    }
 }
\ No newline at end of file
@@ -167,6 +167,8 @@ import sm.base.util.clCancelException;
 public class GAGenome implements GAID, Initializer, Mutator, Comparator {
     private float _score;         // value returned by the objective function
     private float _fitness;       // (possibly scaled) fitness score
+    GAPopulation home;            // population which keeps the scores in its row (null - _score, _fitness)
+    int row;                      // the row of the genome in home
     boolean _evaluated;           // has this genome been evaluated?
     private int _neval;           // how many evaluations since initialization?
     private GAGeneticAlgorithm ga;// the ga that is using this genome
@@ -280,8 +282,8 @@ public class GAGenome implements GAID, Initializer, Mutator, Comparator {
         if (orig == this) {
             return;
         }
-        _score = orig._score;
-        _fitness = orig._fitness;
+        lastScore(orig.lastScore());
+        fitness(orig.fitness());
         _evaluated = orig._evaluated;
         ga = orig.ga;
         ud = orig.ud;
@@ -311,26 +313,75 @@ public class GAGenome implements GAID, Initializer, Mutator, Comparator {
         return !equal(g);
     }
 
+    /**
+     * @return 64 bit hash of the contents, the genomes which are equal must have
+     *         the same hash (used by the evaluation cache)
+     */
+    long hash() {
+        GAError.GAErr(className(), "hash", GAError.gaErrOpUndef);
+        return 0;
+    }
+
     final int nevals() {
         return _neval;
     }
 
     public final float score() throws clCancelException {
         evaluate();
-        return _score;
+        return lastScore();
     }
 
     final float score(final float s) {
         _evaluated = true;
-        return _score = s;
+        return lastScore(s);
+    }
+
+    /**
+     * @return the score as it is, without an evaluation
+     */
+    final float lastScore() {
+        return home != null ? home.score[row] : _score;
+    }
+
+    private float lastScore(final float s) {
+        if (home != null) {
+            home.score[row] = s;
+        } else {
+            _score = s;
+        }
+        return s;
     }
 
     final float fitness() {
-        return _fitness;
+        return home != null ? home.fitness[row] : _fitness;
     }
 
     final float fitness(final float f) {
-        return _fitness = f;
+        if (home != null) {
+            home.fitness[row] = f;
+        } else {
+            _fitness = f;
+        }
+        return f;
+    }
+
+    /**
+     * Move the score and the fitness into the row r of the population p (null -
+     * into the genome itself).  The population which kept them so far gets its
+     * row back.
+     */
+    final void home(final GAPopulation p, final int r) {
+        final float s = lastScore();
+        final float f = fitness();
+        final GAPopulation old = home;
+        final int oldrow = row;
+        home = p;
+        row = r;
+        lastScore(s);
+        fitness(f);
+        if (old != null) {
+            old.release(oldrow);
+        }
     }
 
     final GAGeneticAlgorithm geneticAlgorithm() {
@@ -368,11 +419,20 @@ public class GAGenome implements GAID, Initializer, Mutator, Comparator {
             final GAGenome This = this;
             if (eval != null) {
                 This._neval++;
-                This._score = eval.evaluator(This);
+                This.lastScore(eval.evaluator(This));
             }
             This._evaluated = true;
         }
-        return _score;
+        return lastScore();
+    }
+
+    /**
+     * Take the score found by a batch objective function (see BatchEvaluator).
+     */
+    final void evaluated(final float s) {
+        _neval++;
+        lastScore(s);
+        _evaluated = true;
     }
 
     final Evaluator evaluator() {
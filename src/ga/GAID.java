@@ -45,6 +45,8 @@ interface GAID {
     int UniformSelection = 44;
     int SRSSelection = 45;
     int DSSelection = 46;
+    int AliasSelection = 47;
+    int SUSSelection = 48;
 
     int Genome = 50;
     int BinaryStringGenome = 51;
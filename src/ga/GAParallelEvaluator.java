@@ -0,0 +1,80 @@
+package ga;
+
+import sm.base.util.clCancelException;
+import sm.base.util.clWorkQueue;
+
+import java.util.concurrent.ExecutorService;
+
+/**
+ * Description:
+ * ----------------------------------------------------------------------------
+ * Parallel population evaluator.  The individuals which need an evaluation are
+ * collected first, then the calling thread and the helpers on the executor take
+ * them one by one and call their evaluate member.  The calling thread waits only
+ * for the individuals that were taken by the helpers, so the executor may be
+ * busy with other work (or even with the caller itself) without a deadlock.
+ * The scores do not depend on the order of evaluation, so the evolution is the
+ * same as with the default (serial) evaluator.
+ * The objective function must follow the thread-safety contract described in
+ * Evaluator.  The first failure of any evaluation stops the others and is
+ * rethrown to the caller.
+ * With a batch objective function (see BatchEvaluator) the workers take slices
+ * of the individuals instead, two slices per worker, each one scored by a single
+ * batch call.
+ * ----------------------------------------------------------------------------
+ */
+final class GAParallelEvaluator implements PEvaluator {
+    private final ExecutorService exec;
+
+    GAParallelEvaluator(final ExecutorService e) {
+        exec = e;
+    }
+
+    ExecutorService executor() {
+        return exec;
+    }
+
+    public void evaluator(final GAPopulation p) throws clCancelException {
+        final GAGenome[] b = p.batch();
+        if (b != null) {
+            final int workers = Math.min(Runtime.getRuntime().availableProcessors(), b.length);
+            new Batch(b, b.length, (b.length + 2 * workers - 1) / (2 * workers)).run(exec);
+        }
+        int m = 0;
+        final GAGenome[] pending = new GAGenome[p.size()];
+        for (int i = 0; i < p.size(); i++) {
+            if (!p.individual(i)._evaluated) {
+                pending[m++] = p.individual(i);
+            }
+        }
+        if (m == 0) {
+            return;
+        }
+        new Batch(pending, m, 0).run(exec);
+    }
+
+    /**
+     * One population evaluation shared by the workers: the tasks are single
+     * individuals or, for a batch objective function, slices of them.
+     */
+    private static final class Batch extends clWorkQueue {
+        private final GAGenome[] g;
+        private final int m;
+        private final int slice;    // individuals per batch call, 0 - no batch objective
+
+        private Batch(final GAGenome[] genomes, final int count, final int size) {
+            super(size > 0 ? (count + size - 1) / size : count, "Evaluation is interrupted!");
+            g = genomes;
+            m = count;
+            slice = size;
+        }
+
+        protected void runTask(final int i, final Object state) throws clCancelException {
+            if (slice > 0) {
+                GAPopulation.evaluate(g, i * slice, Math.min(m, (i + 1) * slice));
+            } else {
+                g[i].evaluate();
+            }
+        }
+    }
+}
@@ -2,6 +2,9 @@ package ga;
 
 import sm.base.util.clCancelException;
 
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
 /**
  * User: Oleg
  * Date: Jul 5, 2004
@@ -22,11 +25,36 @@ import sm.base.util.clCancelException;
  * resizing to a larger size, we clone randomly individuals from the existing
  * population.
  * <p/>
+ * pack
+ * The population keeps the raw scores and the fitness scores of its genomes in
+ * two float arrays and the bits of the binary string genomes (1D, 2D and
+ * bin-to-dec) in one block of words, a row per genome, so a population of many
+ * small genomes costs a few arrays instead of one per genome and the scans of
+ * the scores and the bits run through contiguous memory.  The genome objects
+ * are the handles the operators, the selectors and the objective functions
+ * work with; they read and write their row.  The rows do not follow the sort,
+ * an individual keeps its row wherever it moves in the population.
+ * The population packs itself (the individuals take the rows 0..n-1) when it is
+ * created, copied into or grown.  A genome which comes in by add or replace
+ * takes a free row (there is a spare one, so replacing the worst with the best
+ * of another population does not need a new array).  A genome which leaves by
+ * remove, replace or size keeps its row until the population needs it or the
+ * genome comes into another population; only then it moves to arrays of its
+ * own.  A genome whose bits are resized beyond its row keeps them in an array
+ * of its own.  A copy into a population of the same size and kind copies the
+ * genomes in place and does not allocate anything.
+ * <p/>
  * sort
  * The sort member is defined so that it can work on a const population.  It
  * does not change the logical state of the population, but it does change its
  * physical state.  We sort from best (0th individual) to worst (n-1).  The sort
  * figures out whether high is best or low is best.
+ * The scores are read once into an array of keys and an array of indices is
+ * sorted on them, then the individuals are put in that order.  The best and
+ * worst members do not sort the whole population: they select the asked rank
+ * from the unsorted middle (quickselect) and keep the best (top) and the worst
+ * (bot) ends which are already in their places, so the elitism and the
+ * replacement of the worst cost O(n) per generation instead of O(n log n).
  * <p/>
  * evaluate
  * If you want to force an evaluation, pass true to the evaluate member
@@ -46,6 +74,16 @@ import sm.base.util.clCancelException;
  * function can be particularly expensive, especially for large populations.  So
  * we store the values and update them only as needed.  The population diversity
  * measure is the average of the individual measures (less the diagonal scores).
+ * The table of the individual measures has a row (slot) per genome, not per
+ * position, so the sorts do not spoil it.  For the binary string genomes the
+ * table remembers the changes counter of the bits of each row, and only the
+ * rows of the individuals which were replaced or changed since the last time
+ * are measured again (a steady-state step costs O(n), not O(n*n)).  The other
+ * genomes cannot tell whether they were changed, so they are all measured.
+ * For large populations the table (n*n floats) may be too big: with
+ * diversitySample the diversity is estimated from that many random pairs and
+ * no table is kept.  The pairs are drawn from a generator of the population,
+ * so measuring the diversity does not change the evolution.
  * ----------------------------------------------------------------------------
  */
 
@@ -59,6 +97,13 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
     private int sortorder;          // is best a high score or a low score?
     private boolean rsorted;        // are the individuals sorted? (raw)
     private boolean ssorted;        // are the individuals sorted? (scaled)
+    private int rtop;               // how many of the best individuals are in their places (raw)
+    private int rbot;               // how many of the worst individuals are in their places (raw)
+    private int stop;               // the same for the scaled ones
+    private int sbot;
+    private float[] key;            // sort keys, the better the smaller
+    private int[] idx;              // positions of the individuals being sorted
+    private GAGenome[] tmp;         // the individuals being put in order
     private boolean scaled;         // has the population been scaled?
     private boolean statted;        // are the stats valid?
     private boolean evaluated;      // has the population been evaluated?
@@ -71,7 +116,22 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
     private float rawVar;
     private float rawDev;     // variance, standard deviation
     private float popDiv;     // overall population diversity [0,)
-    private float[] indDiv;   // table for genome similarities (diversity)
+    private float[] indDiv;   // table for genome similarities (diversity), by slots
+    private GAGenome[] divg;  // the genome which owns each slot of the table (null - free)
+    private int[] divm;       // the changes counter of its bits when measured, -1 if not binary
+    private double[] divrow;  // sum of each row over the owned slots
+    private int[] divslot;    // slot of each individual
+    private int dcap;         // number of slots in the table
+    private int divsample;    // >0 - estimate the diversity from that many pairs
+    private GARandomGenerator divrng;
+    float[] score;            // raw score of the genome of each row
+    float[] fitness;          // fitness score of the genome of each row
+    private long[] block;     // bits of the binary string genomes, rowwords per row
+    private int rowwords;
+    private GAGenome[] holder;  // the genome of each row, null - the row is free
+    private boolean[] left;     // the genome has left the population, the row may be taken
+    private int[] vacant;       // the rows freed since they were last looked for (some may be taken)
+    private int nvacant;
     private GAGenome[] rind;  // the individuals of the population (raw)
     private GAGenome[] sind;  // the individuals of the population (scaled)
     private float fitSum;
@@ -93,8 +153,8 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
      * population object.  Unlike the size method, this method does not allocate
      * more genomes (but it will delete genomes if the specified size is smaller
      * than the current size).
-     * This maintains the integrity of the diversity scores (but the new ones
-     * will not have been set yet).
+     * This maintains the integrity of the diversity scores (the table is
+     * rebuilt when the population outgrows it).
      * We return the total amount allocated (not the amount used).
      */
     private int grow(final int s) {
@@ -114,127 +174,79 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
         sind = new GAGenome[N];
         System.arraycopy(tmp, 0, sind, 0, oldsize);
         //delete [] tmp;
-        if (indDiv != null) {
-            final float[] tmpd = indDiv;
-            indDiv = new float[N * N];
-            for (int i = 0; i < oldsize; i++) {
-                System.arraycopy(tmpd, 0, indDiv, 0, oldsize);
+        return N;
+    }
+
+    /**
+     * Sort the positions l..r on their keys, the smallest key first.  The pivot is
+     * the median of three, we recurse into the smaller part and loop on the
+     * larger one, so the depth is O(log n) even for the sorted populations.
+     */
+    private static void QuickSort(final float[] k, final int[] x, int l, int r) {
+        while (r > l) {
+            final int i = partition(k, x, l, r);
+            if (i - l < r - i) {
+                QuickSort(k, x, l, i - 1);
+                l = i + 1;
+            } else {
+                QuickSort(k, x, i + 1, r);
+                r = i - 1;
             }
-            //delete [] tmpd;
         }
-        return N;
     }
 
-    private static void QuickSortAscendingRaw(final GAGenome[] c, final int l, final int r) throws clCancelException {
-        int i, j;
-        final float v;
-        GAGenome t;
-        if (r > l) {
-            v = c[r].score();
-            i = l - 1;
-            j = r;
-            while (true) {
-                while (c[++i].score() < v && i <= r) {
-                }
-                while (c[--j].score() > v && j > 0) {
-                }
-                if (i >= j) {
-                    break;
-                }
-                t = c[i];
-                c[i] = c[j];
-                c[j] = t;
+    /**
+     * Move the position m of l..r to its place in the sorted order, the smaller
+     * keys before it and the larger ones after it.
+     */
+    private static void QuickSelect(final float[] k, final int[] x, int l, int r, final int m) {
+        while (r > l) {
+            final int i = partition(k, x, l, r);
+            if (m < i) {
+                r = i - 1;
+            } else if (m > i) {
+                l = i + 1;
+            } else {
+                return;
             }
-            t = c[i];
-            c[i] = c[r];
-            c[r] = t;
-            QuickSortAscendingRaw(c, l, i - 1);
-            QuickSortAscendingRaw(c, i + 1, r);
-        }
-    }
-
-    private static void QuickSortDescendingRaw(final GAGenome[] c, final int l, final int r) throws clCancelException {
-        int i, j;
-        final float v;
-        GAGenome t;
-        if (r > l) {
-            v = c[r].score();
-            i = l - 1;
-            j = r;
-            while (true) {
-                while (c[++i].score() > v && i <= r) {
-                }
-                while (c[--j].score() < v && j > 0) {
-                }
-                if (i >= j) {
-                    break;
-                }
-                t = c[i];
-                c[i] = c[j];
-                c[j] = t;
+        }
+    }
+
+    private static int partition(final float[] k, final int[] x, final int l, final int r) {
+        final int m = l + r >>> 1;
+        if (k[m] < k[l]) {
+            swap(k, x, m, l);
+        }
+        if (k[r] < k[l]) {
+            swap(k, x, r, l);
+        }
+        if (k[m] < k[r]) {
+            swap(k, x, m, r);
+        }
+        final float v = k[r];
+        int i = l - 1;
+        int j = r;
+        while (true) {
+            while (k[++i] < v) {
             }
-            t = c[i];
-            c[i] = c[r];
-            c[r] = t;
-            QuickSortDescendingRaw(c, l, i - 1);
-            QuickSortDescendingRaw(c, i + 1, r);
-        }
-    }
-
-    private static void QuickSortAscendingScaled(final GAGenome[] c, final int l, final int r) {
-        int i, j;
-        final float v;
-        GAGenome t;
-        if (r > l) {
-            v = c[r].fitness();
-            i = l - 1;
-            j = r;
-            while (true) {
-                while (c[++i].fitness() < v && i <= r) {
-                }
-                while (c[--j].fitness() > v && j > 0) {
-                }
-                if (i >= j) {
-                    break;
-                }
-                t = c[i];
-                c[i] = c[j];
-                c[j] = t;
+            while (k[--j] > v && j > l) {
             }
-            t = c[i];
-            c[i] = c[r];
-            c[r] = t;
-            QuickSortAscendingScaled(c, l, i - 1);
-            QuickSortAscendingScaled(c, i + 1, r);
-        }
-    }
-
-    private static void QuickSortDescendingScaled(final GAGenome[] c, final int l, final int r) {
-        int i, j;
-        final float v;
-        GAGenome t;
-        if (r > l) {
-            v = c[r].fitness();
-            i = l - 1;
-            j = r;
-            while (true) {
-                while (c[++i].fitness() > v && i <= r) {
-                }
-                while (c[--j].fitness() < v && j > 0) {
-                }
-                if (i >= j) {
-                    break;
-                }
-                t = c[i];
-                c[i] = c[j];
-                c[j] = t;
+            if (i >= j) {
+                break;
             }
-            t = c[i];
-            c[i] = c[r];
-            c[r] = t;
-            QuickSortDescendingScaled(c, l, i - 1);
-            QuickSortDescendingScaled(c, i + 1, r);
+            swap(k, x, i, j);
         }
+        swap(k, x, i, r);
+        return i;
+    }
+
+    private static void swap(final float[] k, final int[] x, final int i, final int j) {
+        final float t = k[i];
+        k[i] = k[j];
+        k[j] = t;
+        final int u = x[i];
+        x[i] = x[j];
+        x[j] = u;
     }
 
     public boolean sameClass(final GAID b) {
@@ -269,11 +281,78 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
      * status flags for indicating when the population needs to be updated again
      */
     public void evaluator(final GAPopulation p) throws clCancelException {
+        final GAGenome[] b = p.batch();
+        if (b != null) {
+            evaluate(b, 0, b.length);
+        }
         for (int i = 0; i < p.size(); i++) {
             p.individual(i).evaluate();
         }
     }
 
+    /**
+     * The individuals which need an evaluation and have the same batch objective
+     * function as the first of them (see BatchEvaluator), null if there is no
+     * batch objective function.  The others are left for the evaluate member.
+     */
+    GAGenome[] batch() {
+        Evaluator f = null;
+        int m = 0;
+        for (int i = 0; i < n; i++) {
+            if (!rind[i]._evaluated) {
+                if (f == null) {
+                    f = rind[i].evaluator();
+                    if (!(f instanceof BatchEvaluator)) {
+                        return null;
+                    }
+                }
+                if (rind[i].evaluator() == f) {
+                    m++;
+                }
+            }
+        }
+        if (m == 0) {
+            return null;
+        }
+        final GAGenome[] b = new GAGenome[m];
+        m = 0;
+        for (int i = 0; i < n; i++) {
+            if (!rind[i]._evaluated && rind[i].evaluator() == f) {
+                b[m++] = rind[i];
+            }
+        }
+        return b;
+    }
+
+    /**
+     * Score the genomes g[lo..hi-1] with one call of their batch objective
+     * function.  The phenotypes of the bin-to-dec genomes of the same width are
+     * decoded into the rows of a matrix first.
+     */
+    static void evaluate(final GAGenome[] g, final int lo, final int hi) throws clCancelException {
+        final int m = hi - lo;
+        final GAGenome[] b = new GAGenome[m];
+        System.arraycopy(g, lo, b, 0, m);
+        int width = b[0] instanceof GABin2DecGenome ? ((GABin2DecGenome) b[0]).nPhenotypes() : 0;
+        for (int i = 1; i < m && width > 0; i++) {
+            if (!(b[i] instanceof GABin2DecGenome) || ((GABin2DecGenome) b[i]).nPhenotypes() != width) {
+                width = 0;
+            }
+        }
+        float[] x = null;
+        if (width > 0) {
+            x = new float[m * width];
+            for (int i = 0; i < m; i++) {
+                ((GABin2DecGenome) b[i]).phenotypes(x, i * width);
+            }
+        }
+        final float[] s = new float[m];
+        ((BatchEvaluator) b[0].evaluator()).evaluator(b, m, x, width, s);
+        for (int i = 0; i < m; i++) {
+            b[i].evaluated(s[i]);
+        }
+    }
+
     interface SortBasis {
         int RAW = 0;
         int SCALED = 1;
@@ -312,6 +391,7 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
         rind = new GAGenome[N];
         sind = new GAGenome[N];
         indDiv = null;
+        pack();
 
         neval = 0;
         rawSum = rawAve = rawDev = rawVar = rawMax = rawMin = (float) 0.0;
@@ -343,6 +423,7 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
         }
         System.arraycopy(rind, 0, sind, 0, N);
         indDiv = null;
+        pack();
 
         neval = 0;
         rawSum = rawAve = rawDev = rawVar = rawMax = rawMin = (float) 0.0;
@@ -409,7 +490,8 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
      */
     void copy(final GAPopulation arg) throws clCancelException {
         int i;
-        for (i = 0; i < n; i++) {
+        final boolean inplace = rind != null && n == arg.n && sameKind(arg);
+        for (i = 0; i < n && !inplace; i++) {
             rind[i].delete();
         }
         //delete [] rind;
@@ -426,22 +508,27 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
         }
 
         csz = arg.csz;
-        N = arg.N;
-        n = arg.n;
-        rind = new GAGenome[N];
-        for (i = 0; i < n; i++) {
-            rind[i] = (GAGenome) arg.rind[i].clone();
+        if (inplace) {
+            for (i = 0; i < n; i++) {
+                rind[i].copy(arg.rind[i]);
+            }
+        } else {
+            N = arg.N;
+            n = arg.n;
+            rind = new GAGenome[N];
+            for (i = 0; i < n; i++) {
+                rind[i] = (GAGenome) arg.rind[i].clone();
+            }
+            sind = new GAGenome[N];
         }
-        sind = new GAGenome[N];
         System.arraycopy(rind, 0, sind, 0, N);
-
-        if (arg.indDiv != null) {
-            indDiv = new float[N * N];
-            System.arraycopy(arg.indDiv, 0, indDiv, 0, N * N);
-        } else {
-            indDiv = null;
+        if (!inplace) {
+            pack();
         }
 
+        indDiv = null;      // the slots belong to the genomes of arg, we measure again
+        divsample = arg.divsample;
+
         sclscm = (GAScalingScheme) arg.sclscm.clone();
         scaled = false;
         if (arg.scaled) {
@@ -480,9 +567,12 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
         sortorder = arg.sortorder;
         rsorted = arg.rsorted;
         ssorted = false;    // we must sort at some later point
+        rtop = arg.rtop;
+        rbot = arg.rbot;
+        stop = sbot = 0;
         statted = arg.statted;
         evaluated = arg.evaluated;
-        divved = arg.divved;
+        divved = false;
 
         init = arg.init;
         eval = arg.eval;
@@ -524,15 +614,24 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
                 rind[i] = (GAGenome) rind[GARandom.GARandomInt(0, n - 1)].clone(GAGenome.CloneMethod.CONTENTS);
             }
             rsorted = false;
+            rtop = rbot = 0;
         } else {
             for (int i = popsize; i < n; i++) // trash the worst ones (if sorted)
             {
+                leave(rind[i]);
                 rind[i].delete();             // may not be sorted!!!!
             }
+            rtop = Math.min(rtop, popsize);
+            rbot = 0;
         }
         System.arraycopy(rind, 0, sind, 0, N);
         ssorted = scaled = statted = divved = selectready = false;
+        stop = sbot = 0;
+        final boolean grown = popsize > n;
         n = popsize;
+        if (grown) {
+            pack();
+        }
         if (evaluated) {
             evaluate(true);
         }
@@ -572,8 +671,217 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
         return N = n;
     }
 
+    /**
+     * Move the scores and the bits of the individuals into new rows, the
+     * individual i into the row i.  The rows are as wide as the longest bit
+     * string, there is a row for each allocated individual and a spare one.
+     * The genomes which are not individuals any more move to their own arrays.
+     * The genomes keep their bits, scores and flags.
+     */
+    void pack() {
+        final boolean[] stay = new boolean[holder == null ? 0 : holder.length];
+        int w = 0;
+        for (int i = 0; i < n; i++) {
+            if (rind[i].home == this) {
+                stay[rind[i].row] = true;
+            }
+            final GABinaryString bs = bits(rind[i]);
+            if (bs != null) {
+                w = Math.max(w, bs.words());
+            }
+        }
+        for (int r = 0; r < stay.length; r++) {
+            if (holder[r] != null && !stay[r]) {
+                detach(holder[r]);
+            }
+        }
+        final int rows = N + 1;
+        final float[] sc = new float[rows];
+        final float[] ft = new float[rows];
+        final long[] blk = w > 0 ? new long[rows * w] : null;
+        for (int i = 0; i < n; i++) {
+            final GAGenome g = rind[i];
+            sc[i] = g.lastScore();
+            ft[i] = g.fitness();
+            final GABinaryString bs = bits(g);
+            if (bs != null && blk != null) {
+                bs.bind(blk, i * w, w);
+            } else if (bs != null) {
+                bs.unbind();
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            final GAGenome g = rind[i];
+            if (g.home != null && g.home != this) {
+                g.home.release(g.row);
+            }
+            g.home = this;
+            g.row = i;
+        }
+        score = sc;
+        fitness = ft;
+        block = blk;
+        rowwords = w;
+        holder = new GAGenome[rows];
+        System.arraycopy(rind, 0, holder, 0, n);
+        left = new boolean[rows];
+        vacant = new int[rows];
+        nvacant = 0;
+        for (int r = rows - 1; r >= n; r--) {
+            vacant[nvacant++] = r;
+        }
+    }
+
+    /**
+     * Give the individual g a row of the population (unless it has one here).
+     */
+    private void bind(final GAGenome g) {
+        if (g.home == this) {
+            left[g.row] = false;
+            return;
+        }
+        final int r = vacancy();
+        if (r < 0) {
+            pack();
+            return;
+        }
+        holder[r] = g;
+        final GABinaryString bs = bits(g);
+        if (bs != null && block != null && bs.words() <= rowwords) {
+            bs.bind(block, r * rowwords, rowwords);
+        } else if (bs != null) {
+            bs.unbind();
+        }
+        g.home(this, r);
+    }
+
+    /**
+     * The genome g is not an individual any more, it keeps its row until the
+     * row is needed.
+     */
+    private void leave(final GAGenome g) {
+        if (g != null && g.home == this) {
+            left[g.row] = true;
+        }
+    }
+
+    /**
+     * The genome of the row r has moved somewhere else.
+     */
+    void release(final int r) {
+        holder[r] = null;
+        left[r] = false;
+        if (nvacant < vacant.length) {
+            vacant[nvacant++] = r;
+        }
+    }
+
+    /**
+     * Move the scores and the bits of g out of the population.
+     */
+    private void detach(final GAGenome g) {
+        final GABinaryString bs = bits(g);
+        if (bs != null) {
+            bs.unbind();
+        }
+        g.home(null, 0);
+    }
+
+    /**
+     * Find a row for a genome which comes in: a free one if there is, else one
+     * of a genome which has left (it moves to its own arrays).
+     *
+     * @return the row, -1 if all of them belong to the individuals
+     */
+    private int vacancy() {
+        while (true) {
+            while (nvacant > 0) {
+                final int r = vacant[--nvacant];
+                if (holder[r] == null) {
+                    return r;
+                }
+                if (left[r]) {
+                    detach(holder[r]);
+                    return r;
+                }
+            }
+            for (int r = holder.length - 1; r >= 0; r--) {
+                if (holder[r] == null) {
+                    vacant[nvacant++] = r;
+                }
+            }
+            for (int r = holder.length - 1; r >= 0 && nvacant == 0; r--) {
+                if (left[r]) {
+                    vacant[nvacant++] = r;
+                }
+            }
+            if (nvacant == 0) {
+                return -1;
+            }
+        }
+    }
+
+    private boolean sameKind(final GAPopulation arg) {
+        for (int i = 0; i < n; i++) {
+            if (rind[i].getClass() != arg.rind[i].getClass()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check the rows of the individuals: each one holds its row (here or in
+     * another population), no two of them share a row, the bits of the ones
+     * kept here are in their row of the block.
+     *
+     * @return what is wrong, null if nothing is
+     */
+    String rowFault() {
+        final boolean[] taken = new boolean[holder == null ? 0 : holder.length];
+        for (int i = 0; i < n; i++) {
+            final GAGenome g = rind[i];
+            if (g.home == null) {
+                if (holder != null) {
+                    return "individual " + i + " has no row";
+                }
+                continue;
+            }
+            if (g.home.holder[g.row] != g) {
+                return "individual " + i + " is not the holder of its row " + g.row;
+            }
+            if (g.home != this) {
+                continue;
+            }
+            if (taken[g.row]) {
+                return "row " + g.row + " is shared";
+            }
+            taken[g.row] = true;
+            if (left[g.row]) {
+                return "individual " + i + " has left its row " + g.row;
+            }
+            final GABinaryString bs = bits(g);
+            if (bs != null && block != null && bs.words() <= rowwords &&
+                    (bs.data != block || bs.off != g.row * rowwords)) {
+                return "bits of individual " + i + " are not in its row " + g.row;
+            }
+        }
+        return null;
+    }
+
+    private static GABinaryString bits(final GAGenome g) {
+        if (g instanceof GA1DBinaryStringGenome) {
+            return ((GA1DBinaryStringGenome) g).bs;
+        }
+        if (g instanceof GA2DBinaryStringGenome) {
+            return ((GA2DBinaryStringGenome) g).bs;
+        }
+        return null;
+    }
+
     private void touch() {
         rsorted = ssorted = selectready = divved = statted = scaled = evaluated = false;
+        rtop = rbot = stop = sbot = 0;
     }
 
     private void statistics() throws clCancelException {
@@ -648,32 +956,126 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
      * same, the diversity is 0.0.  We don't count the diagonals for the population
      * diversity measure.  0 means minimal diversity means all the same.
      */
+    @SuppressWarnings({"rawtypes", "unchecked"})
     private void diversity(final boolean flag) {
         if (divved && !flag) {
             return;
         }
         final GAPopulation This = this;
-        if (n > 1) {
-            if (This.indDiv == null) {
-                This.indDiv = new float[N * N];
+        if (n > 1 && divsample > 0) {
+            if (divrng == null) {
+                divrng = new GAXoshiro(0);
             }
-
-            This.popDiv = (float) 0.0;
+            double sum = 0.0;
+            for (int k = 0; k < divsample; k++) {
+                final int i = (int) (divrng.nextDouble() * n);
+                int j = (int) (divrng.nextDouble() * (n - 1));
+                if (j >= i) {
+                    j++;
+                }
+                sum += individual(i).compare(individual(j));
+            }
+            This.popDiv = (float) (sum / divsample);
+        } else if (n > 1) {
+            if (This.indDiv == null || dcap < n || flag) {
+                dcap = N;
+                This.indDiv = new float[dcap * dcap];
+                divg = new GAGenome[dcap];
+                divm = new int[dcap];
+                divrow = new double[dcap];
+            }
+            if (divslot == null || divslot.length < N) {
+                divslot = new int[N];
+            }
+            final IdentityHashMap slots = new IdentityHashMap();
+            for (int s = 0; s < dcap; s++) {
+                if (divg[s] != null) {
+                    slots.put(divg[s], Integer.valueOf(s));
+                }
+            }
+            // keep the rows of the genomes which are still here and unchanged
+            final boolean[] keep = new boolean[dcap];
             for (int i = 0; i < n; i++) {
-                This.indDiv[i * n + i] = (float) 0.0;
-                for (int j = i + 1; j < n; j++) {
-                    This.indDiv[j * n + i] = This.indDiv[i * n + j] =
-                                             individual(i).compare(individual(j));
-                    This.popDiv += indDiv[i * n + j];
+                final Integer s = (Integer) slots.get(rind[i]);
+                final int m = changes(rind[i]);
+                if (s != null && !keep[s.intValue()] && m >= 0 && divm[s.intValue()] == m) {
+                    keep[s.intValue()] = true;
+                    divslot[i] = s.intValue();
+                } else {
+                    divslot[i] = -1;
+                }
+            }
+            for (int s = 0; s < dcap; s++) {
+                if (divg[s] != null && !keep[s]) {
+                    for (int t = 0; t < dcap; t++) {
+                        if (divg[t] != null && t != s) {
+                            divrow[t] -= indDiv[s * dcap + t];
+                        }
+                    }
+                    divg[s] = null;
+                    divrow[s] = 0.0;
                 }
             }
-            This.popDiv /= n * (n - 1) >> 1;
+            // and measure the rows of the new ones against all the others
+            int free = 0;
+            for (int i = 0; i < n; i++) {
+                if (divslot[i] >= 0) {
+                    continue;
+                }
+                while (divg[free] != null) {
+                    free++;
+                }
+                final int s = free;
+                divg[s] = rind[i];
+                divm[s] = changes(rind[i]);
+                divslot[i] = s;
+                indDiv[s * dcap + s] = (float) 0.0;
+                for (int t = 0; t < dcap; t++) {
+                    if (divg[t] != null && t != s) {
+                        final float d = divg[s].compare(divg[t]);
+                        indDiv[s * dcap + t] = indDiv[t * dcap + s] = d;
+                        divrow[s] += d;
+                        divrow[t] += d;
+                    }
+                }
+            }
+            double sum = 0.0;
+            for (int s = 0; s < dcap; s++) {
+                sum += divrow[s];
+            }
+            This.popDiv = (float) (sum / ((double) n * (n - 1)));
         } else {
             This.popDiv = (float) 0.0;
         }
         This.divved = true;
     }
 
+    /**
+     * The changes counter of the bits of a binary string genome, -1 for the
+     * other genomes (they are always measured again).
+     */
+    private static int changes(final GAGenome g) {
+        final GABinaryString bs = bits(g);
+        return bs == null ? -1 : bs.mods & 0x7fffffff;
+    }
+
+    int diversitySample() {
+        return divsample;
+    }
+
+    /**
+     * Estimate the diversity from m random pairs of individuals, 0 (the default)
+     * measures all the pairs and keeps the table of them.
+     */
+    int diversitySample(final int m) {
+        if (m != divsample) {
+            divsample = m > 0 ? m : 0;
+            indDiv = null;
+            divved = false;
+        }
+        return divsample;
+    }
+
     void scale() throws clCancelException {
         scale(false);
     }
@@ -722,6 +1124,7 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
 
         This.scaled = true;
         This.ssorted = false;
+        This.stop = This.sbot = 0;
     }
 
     private void prepselect() throws clCancelException {
@@ -747,28 +1150,119 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
     void sort(final boolean flag, final int basis) throws clCancelException {
         final GAPopulation This = this;
         if (basis == SortBasis.RAW) {
-            if (!rsorted || flag) {
-                if (sortorder == SortOrder.LOW_IS_BEST) {
-                    QuickSortAscendingRaw(This.rind, 0, n - 1);
-                } else {
-                    QuickSortDescendingRaw(This.rind, 0, n - 1);
-                }
+            if ((!rsorted || flag) && n > 1) {
+                final int len = keys(rind, 0, n, true);
+                QuickSort(key, idx, 0, len - 1);
+                arrange(rind, 0, n);
                 This.selectready = false;
             }
             This.rsorted = true;
+            This.rtop = This.rbot = 0;
         } else if (basis == SortBasis.SCALED) {
-            if (!ssorted || flag) {
-                if (sortorder == SortOrder.LOW_IS_BEST) {
-                    QuickSortAscendingScaled(This.sind, 0, n - 1);
-                } else {
-                    QuickSortDescendingScaled(This.sind, 0, n - 1);
-                }
+            if ((!ssorted || flag) && n > 1) {
+                final int len = keys(sind, 0, n, false);
+                QuickSort(key, idx, 0, len - 1);
+                arrange(sind, 0, n);
                 This.selectready = false;
             }
             This.ssorted = true;
+            This.stop = This.sbot = 0;
+        }
+    }
+
+    /**
+     * Put the individual of rank i (0 is the best) at the position i without
+     * sorting the whole population.  If the rank is nearer the best end, the best
+     * individuals of the unsorted middle up to the rank i (at least twice as many
+     * as are in their places already, so the calls for the ranks 0, 1, 2 ... cost
+     * O(n log k) altogether) are selected and sorted, otherwise the same is done
+     * at the worst end.  The individuals move, so the selector has to be updated
+     * (its tables refer to the positions).
+     */
+    private void place(final int i, final int basis) throws clCancelException {
+        final boolean raw = basis == SortBasis.RAW;
+        if (raw ? rsorted : ssorted) {
+            return;
+        }
+        final GAGenome[] c = raw ? rind : sind;
+        int top = raw ? rtop : stop;
+        int bot = raw ? rbot : sbot;
+        final int hi = n - bot;
+        if (i < top || i >= hi) {
+            return;
+        }
+        if (hi - top <= 1) {    // the one left is in its place, it is not even scored
+            if (raw) {
+                rsorted = true;
+                rtop = rbot = 0;
+            } else {
+                ssorted = true;
+                stop = sbot = 0;
+            }
+            return;
+        }
+        final int len = keys(c, top, hi, raw);
+        if (i - top <= hi - 1 - i) {
+            final int m = Math.min(hi, Math.max(i + 1, 2 * top));
+            QuickSelect(key, idx, 0, len - 1, m - 1 - top);
+            QuickSort(key, idx, 0, m - 2 - top);
+            arrange(c, top, hi);
+            top = m;
+        } else {
+            final int m = Math.max(top, Math.min(i, n - 2 * bot));
+            QuickSelect(key, idx, 0, len - 1, m - top);
+            QuickSort(key, idx, m - top + 1, len - 1);
+            arrange(c, top, hi);
+            bot = n - m;
+        }
+        selectready = false;
+        if (top + bot >= n) {
+            top = bot = 0;
+            if (raw) {
+                rsorted = true;
+            } else {
+                ssorted = true;
+            }
+        }
+        if (raw) {
+            rtop = top;
+            rbot = bot;
+        } else {
+            stop = top;
+            sbot = bot;
         }
     }
 
+    /**
+     * Read the keys of the individuals lo..hi-1 (the raw scores or the fitness
+     * scores, negated if high is best) and number them from 0.
+     */
+    private int keys(final GAGenome[] c, final int lo, final int hi, final boolean raw) throws clCancelException {
+        if (key == null || key.length < n) {
+            key = new float[N];
+            idx = new int[N];
+            tmp = new GAGenome[N];
+        }
+        final boolean high = sortorder == SortOrder.HIGH_IS_BEST;
+        for (int i = lo; i < hi; i++) {
+            final float v = raw ? c[i].score() : c[i].fitness();
+            key[i - lo] = high ? -v : v;
+            idx[i - lo] = i;
+        }
+        return hi - lo;
+    }
+
+    /**
+     * Put the individuals lo..hi-1 in the order of the sorted indices.
+     */
+    private void arrange(final GAGenome[] c, final int lo, final int hi) {
+        System.arraycopy(c, lo, tmp, lo, hi - lo);
+        for (int i = lo; i < hi; i++) {
+            c[i] = tmp[idx[i - lo]];
+        }
+        Arrays.fill(tmp, lo, hi, null);
+    }
+
     float sum() throws clCancelException {
         if (!statted) {
             statistics();
@@ -822,7 +1316,27 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
         if (!divved) {
             diversity();
         }
-        return indDiv[i * n + j];
+        if (i == j) {
+            return (float) 0.0;
+        }
+        if (indDiv == null) {
+            return individual(i).compare(individual(j));
+        }
+        int a = divslot[i];
+        int b = divslot[j];
+        if (divg[a] != rind[i] || divg[b] != rind[j]) { // sorted since measured
+            a = slot(rind[i]);
+            b = slot(rind[j]);
+        }
+        return indDiv[a * dcap + b];
+    }
+
+    private int slot(final GAGenome g) {
+        int s = 0;
+        while (divg[s] != g) {
+            s++;
+        }
+        return s;
     }
 
     float fitsum() throws clCancelException {
@@ -879,7 +1393,8 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
         if (!evaluated || flag) {
             eval.evaluator(this);
             neval++;
-            scaled = statted = divved = rsorted = ssorted = false;
+            scaled = statted = divved = rsorted = ssorted = selectready = false;
+            rtop = rbot = stop = sbot = 0;
         }
         evaluated = true;
     }
@@ -917,6 +1432,7 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
         }
         sortorder = flag;
         rsorted = ssorted = false;
+        rtop = rbot = stop = sbot = 0;
         return flag;
     }
 
@@ -995,7 +1511,7 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
         if (basis == SortBasis.SCALED) {
             scale();
         }
-        sort(false, basis);
+        place(i, basis);
         return basis == SortBasis.RAW ? rind[i] : sind[i];
     }
 
@@ -1011,7 +1527,7 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
         if (basis == SortBasis.SCALED) {
             scale();
         }
-        sort(false, basis);
+        place(n - 1 - i, basis);
         return basis == SortBasis.RAW ? rind[n - 1 - i] : sind[n - 1 - i];
     }
 
@@ -1056,8 +1572,10 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
             rind[n].geneticAlgorithm(ga);
         }
         n++;
+        bind(c);
 
         rsorted = ssorted = false;    // may or may not be true, but must be sure
+        rtop = rbot = stop = sbot = 0;
         evaluated = scaled = statted = divved = selectready = false;
 
         return c;
@@ -1074,10 +1592,10 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
     GAGenome remove(int i, final int basis) throws clCancelException {
         GAGenome removed = null;
         if (i == Replacement.BEST) {
-            sort(false, basis);
+            place(0, basis);
             i = 0;
         } else if (i == Replacement.WORST) {
-            sort(false, basis);
+            place(n - 1, basis);
             i = n - 1;
         } else if (i == Replacement.RANDOM) {
             i = GARandom.GARandomInt(0, n - 1);
@@ -1094,6 +1612,12 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
             }
             System.arraycopy(rind, 0, sind, 0, N);
             ssorted = false;
+            if (i < rtop) {
+                rtop--;
+            } else if (i >= n - rbot) {
+                rbot--;
+            }
+            stop = sbot = 0;
         } else if (basis == SortBasis.SCALED) {
             removed = sind[i];
             // memmove(&(sind[i]), &(sind[i+1]), (n-i-1)*sizeof(GAGenome *));
@@ -1103,10 +1627,17 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
             }
             System.arraycopy(sind, 0, rind, 0, N);
             rsorted = false;
+            if (i < stop) {
+                stop--;
+            } else if (i >= n - sbot) {
+                sbot--;
+            }
+            rtop = rbot = 0;
         } else {
             return removed;
         }
         n--;
+        leave(removed);
         evaluated = false;
 // *** should be smart about these and do incremental update?
         scaled = statted = divved = selectready = false;
@@ -1165,11 +1696,11 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
         }
         switch (which) {
             case Replacement.BEST:
-                sort(false, basis);
+                place(0, basis);
                 i = 0;
                 break;
             case Replacement.WORST:
-                sort(false, basis);
+                place(n - 1, basis);
                 i = n - 1;
                 break;
             case Replacement.RANDOM:
@@ -1195,7 +1726,12 @@ final class GAPopulation implements GAID, PInitializer, PEvaluator {
                 sind[i] = repl;
                 System.arraycopy(sind, 0, rind, 0, N);
             }
+            if (orig != repl) {
+                bind(repl);
+                leave(orig);
+            }
             rsorted = ssorted = false;	// must sort again
+            rtop = rbot = stop = sbot = 0;
             // flag for recalculate stats
             statted = false;
             // Must flag for a new evaluation.
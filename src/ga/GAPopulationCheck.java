@@ -0,0 +1,183 @@
+package ga;
+
+import ga.exam.ex12;
+import sm.base.util.clCancelException;
+
+/**
+ * Description:
+ * ----------------------------------------------------------------------------
+ * Population checks
+ * <p/>
+ * Runs the GAs through the paths which move genomes in and out of the
+ * populations and checks that every genome still carries the score of its own
+ * contents.  Run the main after changing GAPopulation, GAGenome or GAStatistics;
+ * a failed check throws an Error, otherwise OK is printed.
+ * ----------------------------------------------------------------------------
+ */
+public final class GAPopulationCheck {
+    private static final int gaChkGenerations = 100;
+    private static final int gaChkBest = 5;
+    private static final int gaChkSize = 30;
+    private static final int gaChkDemes = 4;
+
+    private GAPopulationCheck() {
+    }
+
+    public static void main(final String[] args) throws clCancelException {
+        ex12.main(new String[0]);
+        elitism();
+        steadyState();
+        demes();
+        bestOfAll();
+        System.out.println("OK");
+    }
+
+    /**
+     * A simple elitist GA: the generations swap the populations and the best of
+     * the old one replaces the worst of the new one, so the best never gets worse.
+     */
+    private static void elitism() throws clCancelException {
+        final Sphere f = new Sphere();
+        final GAParameterList params = new GAParameterList();
+        GASimpleGA.registerDefaultParameters(params);
+        params.set(GADefs.gaNpopulationSize, gaChkSize);
+        params.set(GADefs.gaNelitism, new TObjBool(true));
+        final GASimpleGA ga = new GASimpleGA(new GABin2DecGenome(Sphere.map(), f, null));
+        ga.parameters(params);
+        ga.scoreFilename(null);
+        ga.terminator(new Terminator() {
+            private float best = -Float.MAX_VALUE;
+
+            public boolean terminator(final GAGeneticAlgorithm a) throws clCancelException {
+                rows(ga.population(), f, "elitism " + ga.generation());
+                check(ga.population().best().score() >= best, "elitism lost the best at " + ga.generation());
+                best = ga.population().best().score();
+                return ga.generation() >= gaChkGenerations;
+            }
+        });
+        ga.evolve(3);
+    }
+
+    /**
+     * A steady-state GA: the children replace the worst individuals, the ones
+     * replaced leave their rows to the children of the next generation.
+     */
+    private static void steadyState() throws clCancelException {
+        final Sphere f = new Sphere();
+        final GAParameterList params = new GAParameterList();
+        GASteadyStateGA.registerDefaultParameters(params);
+        params.set(GADefs.gaNpopulationSize, gaChkSize);
+        params.set(GADefs.gaNnBestGenomes, gaChkBest);
+        final GASteadyStateGA ga = new GASteadyStateGA(new GABin2DecGenome(Sphere.map(), f, null));
+        ga.parameters(params);
+        ga.scoreFilename(null);
+        ga.terminator(new Terminator() {
+            public boolean terminator(final GAGeneticAlgorithm a) throws clCancelException {
+                rows(ga.population(), f, "steady-state " + ga.generation());
+                rows(ga.statistics().bestPopulation(), f, "steady-state best-of-all " + ga.generation());
+                return ga.generation() >= gaChkGenerations;
+            }
+        });
+        ga.evolve(5);
+    }
+
+    /**
+     * A deme GA migrating every generation: the emigrants are clones which go
+     * into the rows of the replaced individuals of other islands, the merged
+     * population gets copies of all the islands.
+     */
+    private static void demes() throws clCancelException {
+        final Sphere f = new Sphere();
+        final GADemeGA ga = new GADemeGA(new GABin2DecGenome(Sphere.map(), f, null), gaChkDemes);
+        ga.populationSize(gaChkSize / 2);
+        ga.nMigration(2);
+        ga.migrationInterval(1);
+        ga.scoreFilename(null);
+        ga.terminator(new Terminator() {
+            public boolean terminator(final GAGeneticAlgorithm a) throws clCancelException {
+                rows(ga.population(), f, "demes " + ga.generation());
+                for (int i = 0; i < ga.nPopulations(); i++) {
+                    rows(ga.deme[i].population(), f, "deme " + i + " " + ga.generation());
+                }
+                return ga.generation() >= gaChkGenerations;
+            }
+        });
+        ga.evolve(11);
+    }
+
+    /**
+     * A steady-state GA keeping several best genomes: the best-of-all population
+     * is filled before its genomes are initialized, then gets copies only.
+     */
+    private static void bestOfAll() throws clCancelException {
+        final Sphere f = new Sphere();
+        final GAParameterList params = new GAParameterList();
+        GASteadyStateGA.registerDefaultParameters(params);
+        params.set(GADefs.gaNpopulationSize, 30);
+        params.set(GADefs.gaNnGenerations, gaChkGenerations);
+        params.set(GADefs.gaNnBestGenomes, gaChkBest);
+        final GASteadyStateGA ga = new GASteadyStateGA(new GABin2DecGenome(Sphere.map(), f, null));
+        ga.parameters(params);
+        ga.scoreFilename(null);
+        ga.evolve(7);
+        final GAPopulation boa = ga.statistics().bestPopulation();
+        check(boa.size() == gaChkBest, "best-of-all size " + boa.size());
+        for (int i = 0; i < boa.size(); i++) {
+            scored(boa.individual(i), f, "best-of-all " + i);
+        }
+        for (int i = 1; i < boa.size(); i++) {
+            check(boa.best(i - 1).score() >= boa.best(i).score(), "best-of-all order " + i);
+        }
+        check(boa.best().score() == ga.statistics().maxEver(), "best-of-all is not the best ever");
+        rows(boa, f, "best-of-all");
+    }
+
+    /**
+     * The rows of the population p must be consistent and its individuals must
+     * have the scores of their contents.
+     */
+    static void rows(final GAPopulation p, final Evaluator f, final String where) throws clCancelException {
+        final String fault = p.rowFault();
+        check(fault == null, where + ": " + fault);
+        for (int i = 0; i < p.size(); i++) {
+            scored(p.individual(i), f, where + " individual " + i);
+        }
+    }
+
+    /**
+     * The genome g must have the score of its contents.
+     */
+    static void scored(final GAGenome g, final Evaluator f, final String where) throws clCancelException {
+        check(g.score() == f.evaluator(g), where + ": score " + g.score() + " of other contents");
+    }
+
+    static void check(final boolean ok, final String what) {
+        if (!ok) {
+            throw new Error("GAPopulationCheck: " + what);
+        }
+    }
+
+    /**
+     * Positive objective with the maximum at 0.3 in every phenotype, so the
+     * default linear scaling can be used.
+     */
+    private static final class Sphere implements Evaluator {
+        static GABin2DecPhenotype map() {
+            final GABin2DecPhenotype map = new GABin2DecPhenotype();
+            for (int i = 0; i < 6; i++) {
+                map.add(8, (float) -1.0, (float) 1.0);
+            }
+            return map;
+        }
+
+        public float evaluator(final GAGenome g) {
+            final GABin2DecGenome b = (GABin2DecGenome) g;
+            float s = 0;
+            for (int i = 0; i < b.nPhenotypes(); i++) {
+                final float x = b.phenotype(i) - (float) 0.3;
+                s += x * x;
+            }
+            return 1 / (1 + s);
+        }
+    }
+}
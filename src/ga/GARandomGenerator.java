@@ -0,0 +1,96 @@
+package ga;
+
+/**
+ * Description:
+ * ----------------------------------------------------------------------------
+ * Random number generator
+ * <p/>
+ * The source of all the random numbers used by the GA operators.  A derived
+ * class has to supply the raw 64 bit numbers and a way to split off a new,
+ * statistically independent stream; the uniform, bit and gaussian variates are
+ * built here on top of them.
+ * A generator is *not* thread-safe.  Every thread uses its own generator (see
+ * GARandom), a GA binds its own generator to the evolving thread, so the
+ * evolution with a given seed does not depend on the other threads.
+ * <p/>
+ * split
+ * Returns a new generator whose stream does not overlap the stream of this one.
+ * The result depends only on the state of this generator, so the streams
+ * derived from one master seed in the same order are always the same.
+ * ----------------------------------------------------------------------------
+ */
+public abstract class GARandomGenerator {
+    private static final float FLOAT_UNIT = 1.0f / (1 << 24);
+    private static final double DOUBLE_UNIT = 1.0 / (1L << 53);
+
+    private long bits;      // cached random bits for nextBit
+    private int nbits;      // how many of them are left
+    private boolean cached; // the twin of the last gaussian variate is ready
+    private double cachevalue;
+
+    public abstract long nextLong();
+
+    public abstract GARandomGenerator split();
+
+    /**
+     * @return uniform number in [0, 1)
+     */
+    public final float nextFloat() {
+        return (nextLong() >>> 40) * FLOAT_UNIT;
+    }
+
+    /**
+     * @return uniform number in [0, 1)
+     */
+    public final double nextDouble() {
+        return (nextLong() >>> 11) * DOUBLE_UNIT;
+    }
+
+    /**
+     * @return 0 or 1, one bit of the 64 bit number at a time
+     */
+    public final int nextBit() {
+        if (nbits == 0) {
+            bits = nextLong();
+            nbits = 64;
+        }
+        final int b = (int) (bits & 1);
+        bits >>>= 1;
+        nbits--;
+        return b;
+    }
+
+    /**
+     * @return Return a number from a unit Gaussian distribution.  The mean is 0 and the
+     *         standard deviation is 1.0.  Box-Muller transformation, the twin of the
+     *         found number is cached for the next call.
+     */
+    public final double nextGaussian() {
+        if (cached) {
+            cached = false;
+            return cachevalue;
+        }
+
+        double rsquare;
+        final double factor;
+        double var1;
+        double var2;
+        do {
+            var1 = 2.0 * nextDouble() - 1.0;
+            var2 = 2.0 * nextDouble() - 1.0;
+            rsquare = var1 * var1 + var2 * var2;
+        } while (rsquare >= 1.0 || rsquare == 0.0);
+
+        final double val = -2.0 * Math.log(rsquare) / rsquare;
+        if (val > 0.0) {
+            factor = Math.sqrt(val);
+        } else {
+            factor = 0.0; // should not happen, but might due to roundoff
+        }
+
+        cachevalue = var1 * factor;
+        cached = true;
+
+        return var2 * factor;
+    }
+}
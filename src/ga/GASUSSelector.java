@@ -0,0 +1,88 @@
+package ga;
+
+import sm.base.util.clCancelException;
+
+/**
+ * Description:
+ * ----------------------------------------------------------------------------
+ * Stochastic universal sampling (Baker)
+ * <p/>
+ * Fitness-proportional selection which draws the whole mating pool at once: n
+ * equally spaced pointers with one random offset are laid over the partial
+ * sums, so one pass picks n individuals and each one gets within one copy of
+ * its expected number.  The pool is shuffled and handed out one by one, a new
+ * pool is drawn when it runs out.  The likelihoods are those of the roulette
+ * wheel, the population need not be sorted.
+ * ----------------------------------------------------------------------------
+ */
+public final class GASUSSelector extends GASelectionScheme {
+    private int n;
+    private double[] psum;  // partial sums of the weights
+    private int[] pool;     // the mating pool (positions in the population)
+    private int next;       // the next one to hand out
+
+    public String className() {
+        return "GASUSSelector";
+    }
+
+    public int classID() {
+        return SUSSelection;
+    }
+
+    public GASUSSelector() {
+        super(SCALED);
+        n = next = 0;
+    }
+
+    private GASUSSelector(final GASUSSelector orig) {
+        super(orig);
+        n = next = 0;
+    }
+
+    void delete() {
+    }
+
+    public Object clone() {
+        return new GASUSSelector(this);
+    }
+
+    GAGenome select() {
+        if (next >= n) {
+            draw();
+        }
+        return pop.individual(pool[next++],
+                              which == SCALED ? GAPopulation.SortBasis.SCALED : GAPopulation.SortBasis.RAW);
+    }
+
+    void update() throws clCancelException {
+        if (pop.size() != n) {
+            n = pop.size();
+            psum = new double[n];
+            pool = new int[n];
+        }
+        weights(psum);
+        for (int i = 1; i < n; i++) {
+            psum[i] += psum[i - 1];
+        }
+        next = n;   // the pool is drawn on the first selection
+    }
+
+    private void draw() {
+        final double step = psum[n - 1] / n;
+        double p = GARandom.GARandomDouble() * step;
+        int j = 0;
+        for (int k = 0; k < n; k++, p += step) {
+            while (j < n - 1 && psum[j] <= p) {
+                j++;
+            }
+            pool[k] = j;
+        }
+        for (int k = n - 1; k > 0; k--) {
+            final int r = (int) (GARandom.GARandomDouble() * (k + 1));
+            final int t = pool[k];
+            pool[k] = pool[r];
+            pool[r] = t;
+        }
+        next = 0;
+    }
+}
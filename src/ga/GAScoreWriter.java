@@ -0,0 +1,241 @@
+package ga;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Description:
+ * ----------------------------------------------------------------------------
+ * Score history writer
+ * <p/>
+ * Writes the scores recorded by the statistics to a CSV file on its own
+ * thread, so the evolution does not wait for the disk.  The rows come through
+ * a bounded queue; only when the queue is full (the disk is much slower than
+ * the GA) the evolving thread waits for room, no row is lost.  The file is
+ * buffered and flushed when the writer has been idle or has not flushed for
+ * gaDefFlushInterval milliseconds, and on close.
+ * <p/>
+ * file
+ * One line per recorded generation: the generation number, then the selected
+ * scores (see GAStatistics.selectScores) in the order mean, maximum, minimum,
+ * deviation, diversity, evaluations.  A row of generation 0 starts the file
+ * over with a header line, the later rows are appended (as in GAlib, an
+ * existing file is overwritten without notice).
+ * <p/>
+ * close
+ * Writes the rest of the queue, closes the file and ends the thread.  If the
+ * file cannot be written the error is reported once and the rest of the rows
+ * are dropped.
+ * ----------------------------------------------------------------------------
+ */
+final class GAScoreWriter {
+    static final int gaDefQueueSize = 4096;
+    static final long gaDefFlushInterval = 1000;
+
+    private static final Row END = new Row();
+
+    private final String file;
+    private final int which;
+    @SuppressWarnings("rawtypes")
+    private final BlockingQueue queue = new ArrayBlockingQueue(gaDefQueueSize);
+    private final Thread thread;
+    private volatile boolean failed = false;
+
+    private static final class Row {
+        private int gen;
+        private float ave;
+        private float max;
+        private float min;
+        private float dev;
+        private float div;
+        private int evals;
+    }
+
+    GAScoreWriter(final String filename, final int w) {
+        file = filename;
+        which = w;
+        thread = new Thread(new Runnable() {
+            public void run() {
+                write();
+            }
+        }, "GAScoreWriter " + filename);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    String filename() {
+        return file;
+    }
+
+    int selectScores() {
+        return which;
+    }
+
+    /**
+     * Queue one row.  Waits only while the queue is full; if the thread is
+     * interrupted meanwhile the row is dropped and the interrupt is kept.
+     */
+    @SuppressWarnings("unchecked")
+    void put(final int gen, final float ave, final float max, final float min,
+             final float dev, final float div, final int evals) {
+        if (failed) {
+            return;
+        }
+        final Row r = new Row();
+        r.gen = gen;
+        r.ave = ave;
+        r.max = max;
+        r.min = min;
+        r.dev = dev;
+        r.div = div;
+        r.evals = evals;
+        try {
+            queue.put(r);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Wait until all the queued rows are written and the file is closed.
+     */
+    @SuppressWarnings("unchecked")
+    void close() {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(END);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write() {
+        Writer out = null;
+        boolean dirty = false;
+        long flushed = System.currentTimeMillis();
+        try {
+            while (true) {
+                final Row r;
+                try {
+                    r = (Row) queue.poll(gaDefFlushInterval, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    continue;   // only close ends the writer
+                }
+                if (r == END) {
+                    break;
+                }
+                if (failed) {
+                    continue;   // drain the queue so nobody waits for room
+                }
+                try {
+                    if (r != null) {
+                        if (r.gen == 0 || out == null) {
+                            if (out != null) {
+                                out.close();
+                            }
+                            out = new BufferedWriter(new FileWriter(file, r.gen != 0));
+                            if (r.gen == 0) {
+                                header(out);
+                            }
+                        }
+                        line(out, r);
+                        dirty = true;
+                    }
+                    final long now = System.currentTimeMillis();
+                    if (dirty && (r == null || now - flushed >= gaDefFlushInterval)) {
+                        out.flush();
+                        dirty = false;
+                        flushed = now;
+                    }
+                } catch (IOException e) {
+                    fail(e);
+                }
+            }
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    fail(e);
+                }
+            }
+        }
+    }
+
+    private void fail(final IOException e) {
+        if (!failed) {
+            failed = true;
+            GAError.GAErr("GAScoreWriter", "write", "cannot write the scores to " + file, e.getMessage(), null);
+        }
+    }
+
+    private void header(final Writer out) throws IOException {
+        out.write("generation");
+        if ((which & GAStatistics.Mean) != 0) {
+            out.write(",mean");
+        }
+        if ((which & GAStatistics.Maximum) != 0) {
+            out.write(",maximum");
+        }
+        if ((which & GAStatistics.Minimum) != 0) {
+            out.write(",minimum");
+        }
+        if ((which & GAStatistics.Deviation) != 0) {
+            out.write(",deviation");
+        }
+        if ((which & GAStatistics.Diversity) != 0) {
+            out.write(",diversity");
+        }
+        if ((which & GAStatistics.Evaluations) != 0) {
+            out.write(",evaluations");
+        }
+        out.write('\n');
+    }
+
+    private void line(final Writer out, final Row r) throws IOException {
+        out.write(Integer.toString(r.gen));
+        if ((which & GAStatistics.Mean) != 0) {
+            out.write(',');
+            out.write(Float.toString(r.ave));
+        }
+        if ((which & GAStatistics.Maximum) != 0) {
+            out.write(',');
+            out.write(Float.toString(r.max));
+        }
+        if ((which & GAStatistics.Minimum) != 0) {
+            out.write(',');
+            out.write(Float.toString(r.min));
+        }
+        if ((which & GAStatistics.Deviation) != 0) {
+            out.write(',');
+            out.write(Float.toString(r.dev));
+        }
+        if ((which & GAStatistics.Diversity) != 0) {
+            out.write(',');
+            out.write(Float.toString(r.div));
+        }
+        if ((which & GAStatistics.Evaluations) != 0) {
+            out.write(',');
+            out.write(Integer.toString(r.evals));
+        }
+        out.write('\n');
+    }
+}
@@ -2,6 +2,8 @@ package ga;
 
 import sm.base.util.clCancelException;
 
+import java.util.Arrays;
+
 /**
  * User: Oleg
  * Date: Jul 5, 2004
@@ -35,6 +37,8 @@ abstract class GASelectionScheme implements GAID {
     static final int RAW = 0;
     static final int SCALED = 1;
 
+    static final int gaDefTournamentSize = 2;
+
     GASelectionScheme(final int w) {
         which = w;
     }
@@ -65,5 +69,46 @@ abstract class GASelectionScheme implements GAID {
 
     abstract void update() throws clCancelException;
 
-    abstract GAGenome select();
+    abstract GAGenome select() throws clCancelException;
+
+    /**
+     * Fill w with the selection weights of the individuals in the order of the
+     * population (objective or fitness scores as determined by which), in the
+     * same proportions as the roulette wheel uses: equal weights if all the
+     * scores are the same, max + min - score if low is best.  The scores must be
+     * all non-negative or all non-positive, otherwise we post an error and use
+     * equal weights.  The weights are made non-negative, the sum is returned.
+     */
+    final double weights(final double[] w) throws clCancelException {
+        final int n = pop.size();
+        final boolean raw = which == RAW;
+        final float max = raw ? pop.max() : pop.fitmax();
+        final float min = raw ? pop.min() : pop.fitmin();
+        if (max == min || !(max > 0 && min >= 0 || max <= 0 && min < 0)) {
+            if (max != min) {
+                GAError.GAErr(className(), raw ? "update - objective" : "update - fitness",
+                              raw ? "objective scores are not strictly negative or strictly positive" :
+                              "fitness scores are not strictly negative or strictly positive",
+                              "this selection method cannot be used with these scores", "");
+            }
+            Arrays.fill(w, 0, n, 1.0);
+            return n;
+        }
+        final int basis = raw ? GAPopulation.SortBasis.RAW : GAPopulation.SortBasis.SCALED;
+        final boolean high = pop.order() == GAPopulation.SortOrder.HIGH_IS_BEST;
+        double sum = 0.0;
+        for (int i = 0; i < n; i++) {
+            final GAGenome g = pop.individual(i, basis);
+            final float s = raw ? g.score() : g.fitness();
+            w[i] = high ? s : (double) max + min - s;
+            sum += w[i];
+        }
+        if (sum < 0.0) {
+            for (int i = 0; i < n; i++) {
+                w[i] = -w[i];
+            }
+            sum = -sum;
+        }
+        return sum;
+    }
 }
\ No newline at end of file
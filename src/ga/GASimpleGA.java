@@ -2,6 +2,8 @@ package ga;
 
 import sm.base.util.clCancelException;
 
+import java.util.concurrent.ExecutorService;
+
 /**
  * User: Oleg
  * Date: Jul 6, 2004
@@ -73,14 +75,13 @@ public final class GASimpleGA extends GAGeneticAlgorithm {
     }
 
     /**
-     * Initialize the population, set the random seed as needed, do a few stupidity
+     * Initialize the population (the random generator is set by evolve), do a few stupidity
      * checks, reset the stats.  We must initialize the old pop because there is no
      * guarantee that each individual will get initialized during the course of our
      * operator++ operations.  We do not evaluate the old pop because that will
      * happen as-needed later on.
      */
     void initialize(final int seed) throws clCancelException {
-        GARandom.GARandomSeed(seed);
         pop.initialize();
         pop.evaluate(true); // the old pop will get it when the pops switch
         stats.reset(pop);
@@ -97,6 +98,10 @@ public final class GASimpleGA extends GAGeneticAlgorithm {
      * reset the contents of the genomes.
      * The selection routine must return a pointer to a genome from the old
      * population.
+     * Only the changed individuals are evaluated: a plain copy of a parent keeps
+     * its score, and so does a child which came out of the crossover/mutation
+     * with the same contents as one of its parents.  numeval counts the
+     * individuals which are really left for the evaluation.
      */
     void step() throws clCancelException {
         int i, mut, c1, c2;
@@ -128,7 +133,12 @@ public final class GASimpleGA extends GAGeneticAlgorithm {
             if (mut > 0) {
                 c2 = 1;
             }
-            stats.numeval += c1 + c2;
+            if (c1 != 0) {
+                inherit(pop.individual(i), mom, dad);
+            }
+            if (c2 != 0) {
+                inherit(pop.individual(i + 1), mom, dad);
+            }
         }
         if (pop.size() % 2 != 0) {    // do the remaining population member
             mom = oldPop.select();
@@ -149,8 +159,14 @@ public final class GASimpleGA extends GAGeneticAlgorithm {
             if (mut > 0) {
                 c1 = 1;
             }
-
-            stats.numeval += c1;
+            if (c1 != 0) {
+                inherit(pop.individual(i), mom, dad);
+            }
+        }
+        for (i = 0; i < pop.size(); i++) {
+            if (!pop.individual(i)._evaluated) {
+                stats.numeval++;
+            }
         }
         stats.numrep += pop.size();
         pop.evaluate(true); // get info about current pop for next time
@@ -171,6 +187,22 @@ public final class GASimpleGA extends GAGeneticAlgorithm {
         stats.update(pop);      // update the statistics by one generation
     }
 
+    /**
+     * If the child is the same as one of its (evaluated) parents, it takes the
+     * score of the parent instead of the objective function call.
+     */
+    private static void inherit(final GAGenome child, final GAGenome mom, final GAGenome dad)
+            throws clCancelException {
+        if (child._evaluated) {
+            return;
+        }
+        if (mom._evaluated && child.sameClass(mom) && child.equal(mom)) {
+            child.score(mom.score());
+        } else if (dad._evaluated && child.sameClass(dad) && child.equal(dad)) {
+            child.score(dad.score());
+        }
+    }
+
     GASimpleGA increment() throws clCancelException {
         step();
         return this;
@@ -207,7 +239,7 @@ public final class GASimpleGA extends GAGeneticAlgorithm {
         return el = flag;
     }
 
-    int minimaxi() {
+    public int minimaxi() {
         return minmax;
     }
 
@@ -232,7 +264,7 @@ public final class GASimpleGA extends GAGeneticAlgorithm {
         }
 
         super.population(p);
-        oldPop.copy((GAPopulation) pop.clone());
+        oldPop.copy(pop);
         oldPop.geneticAlgorithm(this);
 
         return pop;
@@ -261,11 +293,22 @@ public final class GASimpleGA extends GAGeneticAlgorithm {
         return pop.selector();
     }
 
-    GASelectionScheme selector(final GASelectionScheme s) {
+    public GASelectionScheme selector(final GASelectionScheme s) {
         oldPop.selector(s);
         return super.selector(s);
     }
 
+    public int diversitySample(final int m) {
+        oldPop.diversitySample(m);
+        return super.diversitySample(m);
+    }
+
+    // the populations are swapped every generation, so both of them need it
+    public ExecutorService evaluationExecutor(final ExecutorService e) {
+        oldPop.evaluator(e == null ? (PEvaluator) oldPop : new GAParallelEvaluator(e));
+        return super.evaluationExecutor(e);
+    }
+
     void objectiveFunction(final Evaluator f) {
         super.objectiveFunction(f);
         for (int i = 0; i < pop.size(); i++) {
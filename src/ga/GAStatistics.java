@@ -21,15 +21,31 @@ public final class GAStatistics {
     static final int gaDefScoreFrequency1 = 1;
     static final int gaDefScoreFrequency2 = 100;
     static final int gaDefFlushFrequency = 0;
-    static final String gaDefScoreFilename = "generations.dat";
+    static final String gaDefScoreFilename = null;  // no score file unless one is named
+
+    // Which scores go to the score file (see selectScores).
+    public static final int NoScores = 0x00;
+    public static final int Mean = 0x01;
+    public static final int Maximum = 0x02;
+    public static final int Minimum = 0x04;
+    public static final int Deviation = 0x08;
+    public static final int Diversity = 0x10;
+    public static final int Evaluations = 0x20;
+    public static final int AllScores = 0xff;
 
-    static final int NoScores = 0x00;
-    private static final int Mean = 0x01;
-    static final int Maximum = 0x02;
-    private static final int Minimum = 0x04;
-    private static final int Deviation = 0x08;
-    private static final int Diversity = 0x10;
-    static final int AllScores = 0xff;
+    /**
+     * Why the last evolution stopped, as recorded by the terminator.
+     */
+    public interface Termination {
+        int NONE = 0;           // still running (or a terminator which records nothing)
+        int GENERATIONS = 1;    // the number of generations is reached
+        int CONVERGENCE = 2;    // the best score converged (pConvergence over nConvergence)
+        int POPULATION = 3;     // the population converged to the best score
+        int STALL = 4;          // no better score for a number of generations
+        int IMPROVEMENT = 5;    // too small relative improvement over a window
+        int TIME = 6;           // the wall clock budget is spent
+        int EVALUATIONS = 7;    // the objective function calls budget is spent
+    }
 
     // These should be protected (accessible only to the GA class) but for now they
     // are publicly accessible.  Do not try to set these unless you know what you
@@ -40,6 +56,11 @@ public final class GAStatistics {
     int numrep;     // number of replacements since reset
     int numeval;    // number of individual evaluations since reset
     private int numpeval;     // number of population evals since reset
+    private GAEvalCache cache;    // evaluation cache of the GA, if any
+    private int stopcode = Termination.NONE;  // why the evolution stopped
+    private String stopwhy;                   // and the details
+    private long cachehits;       // hits and misses of the cache before reset
+    private long cachemisses;
 
 
     private int curgen;       // current generation number
@@ -76,8 +97,10 @@ public final class GAStatistics {
     private float[] minScore;    // worst scores of each generation
     private float[] devScore;    // stddev of each generation
     private float[] divScore;    // diversity of each generation
+    private int[] evalScore;     // individual evaluations up to each generation
     private String scorefile;    // name of file to which scores get written
     private int which;           // which data to write to file
+    private GAScoreWriter writer;    // writes the scores on its own thread
     private GAPopulation boa;    // keep a copy of the best genomes
 
     /**
@@ -110,6 +133,7 @@ public final class GAStatistics {
         minScore[nscrs] = minCur;
         devScore[nscrs] = devCur;
         divScore[nscrs] = divCur;
+        evalScore[nscrs] = numeval;
         nscrs++;
     }
 
@@ -147,10 +171,10 @@ public final class GAStatistics {
             boa.order(pop.order());
         }
 
-        if (flag) {     // reset the BOA array
+        if (flag) {     // reset the BOA array (in the order of pop, its genomes are not ranked)
             int j = 0;
             for (int i = 0; i < boa.size(); i++) {
-                boa.best(i).copy(pop.best(j));
+                boa.individual(i).copy(pop.best(j));
                 if (j < pop.size() - 1) {
                     j++;
                 }
@@ -215,12 +239,33 @@ public final class GAStatistics {
      * Write the current scores to file.  If this is the first chunk (ie gen[0]
      * is 0) then we create a new file.  Otherwise we append to an existing file.
      * We give no notice that we're overwriting the existing file!!
+     * The scores are only queued here, the file is written by the score writer
+     * on its own thread (see GAScoreWriter), so the GA does not wait for the disk.
      */
     private void writeScores() {
-        if (scorefile != null) {
+        if (scorefile == null) {
+            closeScores();
             return;
         }
-        // TODO: add the code for writing to file
+        if (writer != null && (!writer.filename().equals(scorefile) || writer.selectScores() != which)) {
+            closeScores();
+        }
+        if (writer == null) {
+            writer = new GAScoreWriter(scorefile, which);
+        }
+        for (int i = 0; i < nscrs; i++) {
+            writer.put(gen[i], aveScore[i], maxScore[i], minScore[i], devScore[i], divScore[i], evalScore[i]);
+        }
+    }
+
+    /**
+     * Wait until the queued scores are in the file and stop the score writer.
+     */
+    void closeScores() {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
     }
 
     /**
@@ -228,7 +273,7 @@ public final class GAStatistics {
      * exist.
      */
     private void resizeScores(final int n) {
-        final int[] tmpi;
+        int[] tmpi;
         float[] tmpf;
 
         if (n == 0) {
@@ -244,6 +289,7 @@ public final class GAStatistics {
             devScore = null;
             //delete [] divScore;
             divScore = null;
+            evalScore = null;
             nscrs = n;
         } else {
             tmpi = gen;
@@ -287,6 +333,12 @@ public final class GAStatistics {
                 System.arraycopy(tmpf, 0, divScore, 0, n < Nscrs ? n : Nscrs);
             }
             //delete [] tmpf;
+
+            tmpi = evalScore;
+            evalScore = new int[n];
+            if (tmpi != null) {
+                System.arraycopy(tmpi, 0, evalScore, 0, n < Nscrs ? n : Nscrs);
+            }
             if (nscrs > n) {
                 nscrs = n;
             }
@@ -319,6 +371,7 @@ public final class GAStatistics {
         minScore = new float[Nscrs];
         devScore = new float[Nscrs];
         divScore = new float[Nscrs];
+        evalScore = new int[Nscrs];
         scorefile = gaDefScoreFilename;
         which = Maximum;
         boa = null;
@@ -332,6 +385,7 @@ public final class GAStatistics {
         minScore = null;
         devScore = null;
         divScore = null;
+        evalScore = null;
         scorefile = null;
         boa = null;
         copy(orig);
@@ -351,6 +405,7 @@ public final class GAStatistics {
         delete [] devScore;
         delete [] divScore;
         delete [] scorefile;*/
+        closeScores();
         boa.delete();
     }
 
@@ -365,6 +420,11 @@ public final class GAStatistics {
         numrep = orig.numrep;
         numeval = orig.numeval;
         numpeval = orig.numpeval;
+        cache = orig.cache;
+        stopcode = orig.stopcode;
+        stopwhy = orig.stopwhy;
+        cachehits = orig.cachehits;
+        cachemisses = orig.cachemisses;
         maxever = orig.maxever;
         minever = orig.minever;
         on = orig.on;
@@ -407,6 +467,9 @@ public final class GAStatistics {
         //delete [] divScore;
         divScore = new float[Nscrs];
         System.arraycopy(orig.divScore, 0, divScore, 0, Nscrs);
+        evalScore = new int[Nscrs];
+        System.arraycopy(orig.evalScore, 0, evalScore, 0, Nscrs);
+        closeScores();  // the writer is not shared, the copy starts its own
         //delete [] scorefile;
         if (orig.scorefile != null) {
             scorefile = orig.scorefile;
@@ -488,15 +551,15 @@ public final class GAStatistics {
         return val;
     }
 
-    float maxEver() {
+    public float maxEver() {
         return maxever;
     }
 
-    float minEver() {
+    public float minEver() {
         return minever;
     }
 
-    int generation() {
+    public int generation() {
         return curgen;
     }
 
@@ -524,6 +587,55 @@ public final class GAStatistics {
         return numpeval;
     }
 
+    void evaluationCache(final GAEvalCache c) {
+        cache = c;
+        cachehits = c != null ? c.hits() : 0;
+        cachemisses = c != null ? c.misses() : 0;
+    }
+
+    /**
+     * @return number of evaluations answered by the evaluation cache since reset
+     */
+    public long cacheHits() {
+        return cache != null ? cache.hits() - cachehits : 0;
+    }
+
+    /**
+     * @return number of objective function calls made by the evaluation cache since reset
+     */
+    public long cacheMisses() {
+        return cache != null ? cache.misses() - cachemisses : 0;
+    }
+
+    /**
+     * Record why the evolution stops, called by the terminators.
+     */
+    public void terminated(final int reason, final String why) {
+        stopcode = reason;
+        stopwhy = why;
+    }
+
+    /**
+     * @return why the last evolution stopped, one of Termination
+     */
+    public int terminationReason() {
+        return stopcode;
+    }
+
+    /**
+     * @return the details of the termination (e.g. "no better score in 10 generations"), null if none
+     */
+    public String termination() {
+        return stopwhy;
+    }
+
+    /**
+     * @return number of objective function calls since reset (the cache hits are not counted)
+     */
+    public long objectiveCalls() {
+        return numeval - cacheHits();
+    }
+
     float convergence() {
         double cnv = 0.0;
         if (nconv >= Nconv - 1 && cscore[nconv % Nconv] != 0) {
@@ -703,12 +815,17 @@ public final class GAStatistics {
     void reset(final GAPopulation pop) throws clCancelException {
         curgen = 0;
         numsel = numcro = nummut = numrep = numeval = numpeval = 0;
+        evaluationCache(cache);
+        terminated(Termination.NONE, null);
         /*memset(gen, 0, Nscrs*sizeof(int));
         memset(aveScore, 0, Nscrs*sizeof(float));
         memset(maxScore, 0, Nscrs*sizeof(float));
         memset(minScore, 0, Nscrs*sizeof(float));
         memset(devScore, 0, Nscrs*sizeof(float));
         memset(divScore, 0, Nscrs*sizeof(float)); */
+        for (int i = 0; i < pop.size(); i++) {
+            numeval += pop.individual(i).nevals();
+        }
         nscrs = 0;
         setScore(pop);
         if (Nscrs > 0) {
@@ -731,9 +848,6 @@ public final class GAStatistics {
         offmax = pop.max();
         offmin = pop.min();
         numpeval = pop.nevals();
-        for (int i = 0; i < pop.size(); i++) {
-            numeval += pop.individual(i).nevals();
-        }
     }
 
     GAPopulation bestPopulation() {
@@ -99,13 +99,11 @@ public final class GASteadyStateGA extends GAGeneticAlgorithm {
     }
 
     /**
-     * For initialization we set the random seed, check for stupid errors, init the
-     * population, reset the statistics, and that's it.
-     * If we don't get a seed then we set it ourselves.  If we do get one, then
-     * we use it as the random seed.
+     * For initialization we check for stupid errors, init the population, reset
+     * the statistics, and that's it.  The random generator made of the seed is
+     * already bound to the thread by evolve.
      */
     void initialize(final int seed) throws clCancelException {
-        GARandom.GARandomSeed(seed);
         pop.initialize();
         pop.evaluate(true);
         stats.reset(pop);
@@ -230,7 +228,7 @@ public final class GASteadyStateGA extends GAGeneticAlgorithm {
         return status;
     }
 
-    int minimaxi() {
+    public int minimaxi() {
         return minmax;
     }
 
@@ -307,7 +305,7 @@ public final class GASteadyStateGA extends GAGeneticAlgorithm {
         return pop.selector();
     }
 
-    GASelectionScheme selector(final GASelectionScheme s) {
+    public GASelectionScheme selector(final GASelectionScheme s) {
         return super.selector(s);
     }
 
@@ -0,0 +1,78 @@
+package ga;
+
+import sm.base.util.clCancelException;
+
+/**
+ * Description:
+ * ----------------------------------------------------------------------------
+ * Tournament selector
+ * <p/>
+ * Picks size individuals at random (uniformly, with repetition) and returns
+ * the best of them.  Selection takes O(size), the update has nothing to build
+ * (only the scaling is brought up to date), and the scores need not be
+ * positive.  A larger tournament gives a stronger selection pressure.
+ * ----------------------------------------------------------------------------
+ */
+public final class GATournamentSelector extends GASelectionScheme {
+    private int size;
+
+    public String className() {
+        return "GATournamentSelector";
+    }
+
+    public int classID() {
+        return TournamentSelection;
+    }
+
+    public GATournamentSelector() {
+        this(gaDefTournamentSize);
+    }
+
+    public GATournamentSelector(final int k) {
+        super(SCALED);
+        size = k > 0 ? k : 1;
+    }
+
+    private GATournamentSelector(final GATournamentSelector orig) {
+        super(orig);
+        size = orig.size;
+    }
+
+    void delete() {
+    }
+
+    public Object clone() {
+        return new GATournamentSelector(this);
+    }
+
+    void copy(final GASelectionScheme orig) {
+        super.copy(orig);
+        size = ((GATournamentSelector) orig).size;
+    }
+
+    int size() {
+        return size;
+    }
+
+    GAGenome select() throws clCancelException {
+        final int n = pop.size();
+        final boolean high = pop.order() == GAPopulation.SortOrder.HIGH_IS_BEST;
+        GAGenome best = pop.individual((int) (GARandom.GARandomDouble() * n));
+        float b = which == SCALED ? best.fitness() : best.score();
+        for (int k = 1; k < size; k++) {
+            final GAGenome g = pop.individual((int) (GARandom.GARandomDouble() * n));
+            final float s = which == SCALED ? g.fitness() : g.score();
+            if (high ? s > b : s < b) {
+                best = g;
+                b = s;
+            }
+        }
+        return best;
+    }
+
+    void update() throws clCancelException {
+        if (which == SCALED) {
+            pop.scale();
+        }
+    }
+}
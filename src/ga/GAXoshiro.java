@@ -0,0 +1,87 @@
+package ga;
+
+/**
+ * Description:
+ * ----------------------------------------------------------------------------
+ * xoshiro256** generator of Blackman and Vigna: 256 bits of state, period
+ * 2^256-1, a few shifts and rotations per number.  The state is filled from
+ * the seed by SplitMix64, so any seed (even 0) gives a good start.
+ * <p/>
+ * split
+ * The new generator takes the current state, this one jumps 2^128 numbers
+ * ahead.  So the streams split off one after another never overlap unless
+ * somebody draws more than 2^128 numbers from one of them.
+ * ----------------------------------------------------------------------------
+ */
+public final class GAXoshiro extends GARandomGenerator {
+    private static final long[] JUMP = {
+            0x180ec6d33cfd0abaL, 0xd5a61266f0c9392cL, 0xa9582618e03fc9aaL, 0x39abdc4529b1661cL
+    };
+
+    private long s0;
+    private long s1;
+    private long s2;
+    private long s3;
+
+    public GAXoshiro(final long seed) {
+        long x = seed;
+        s0 = mix(x += 0x9e3779b97f4a7c15L);
+        s1 = mix(x += 0x9e3779b97f4a7c15L);
+        s2 = mix(x += 0x9e3779b97f4a7c15L);
+        s3 = mix(x + 0x9e3779b97f4a7c15L);
+    }
+
+    private GAXoshiro(final GAXoshiro g) {
+        s0 = g.s0;
+        s1 = g.s1;
+        s2 = g.s2;
+        s3 = g.s3;
+    }
+
+    // SplitMix64 output function
+    private static long mix(long z) {
+        z = (z ^ z >>> 30) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ z >>> 27) * 0x94d049bb133111ebL;
+        return z ^ z >>> 31;
+    }
+
+    public long nextLong() {
+        final long result = Long.rotateLeft(s1 * 5, 7) * 9;
+        final long t = s1 << 17;
+        s2 ^= s0;
+        s3 ^= s1;
+        s1 ^= s2;
+        s0 ^= s3;
+        s2 ^= t;
+        s3 = Long.rotateLeft(s3, 45);
+        return result;
+    }
+
+    public GARandomGenerator split() {
+        final GAXoshiro g = new GAXoshiro(this);
+        jump();
+        return g;
+    }
+
+    private void jump() {
+        long t0 = 0;
+        long t1 = 0;
+        long t2 = 0;
+        long t3 = 0;
+        for (int i = 0; i < JUMP.length; i++) {
+            for (int b = 0; b < 64; b++) {
+                if ((JUMP[i] & 1L << b) != 0) {
+                    t0 ^= s0;
+                    t1 ^= s1;
+                    t2 ^= s2;
+                    t3 ^= s3;
+                }
+                nextLong();
+            }
+        }
+        s0 = t0;
+        s1 = t1;
+        s2 = t2;
+        s3 = t3;
+    }
+}
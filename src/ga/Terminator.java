@@ -1,11 +1,19 @@
 package ga;
 
+import sm.base.util.clCancelException;
+
 /**
  * User: Oleg
  * Date: Jul 6, 2004
  * Time: 12:09:06 PM
  * Description:
+ * Decides whether the evolution is over, called once per generation (the first
+ * time right after the initialization, at generation 0).  A terminator which
+ * stops the evolution records the reason in the statistics of the GA.
+ * A criterion of your own reads the GA and its statistics (generation,
+ * nGenerations, minimaxi, maxEver, minEver, objectiveCalls) and calls
+ * GAStatistics.terminated when it says stop.
  */
-interface Terminator {
-    boolean terminator(GAGeneticAlgorithm ga);
+public interface Terminator {
+    boolean terminator(GAGeneticAlgorithm ga) throws clCancelException;
 }
\ No newline at end of file
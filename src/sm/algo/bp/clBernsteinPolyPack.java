@@ -5,41 +5,97 @@ package sm.algo.bp;
  * Date: 20/6/2004
  * Time: 15:02:09
  * Description: Base class for univariate & bivariate Bernstein polynomials
+ * Every polynomial of the pack is c * b0^e0 * b1^e1 * ... where b - the barycentric
+ * components of the argument. Coefficients and exponents are tabulated once in ctor,
+ * per sample only the power tables of the components are built.
  */
-class clBernsteinPolyPack implements ifBernsteinPack {
+abstract class clBernsteinPolyPack implements ifBernsteinPack {
     /**
-     * m_cPoly - array of addresses to clBernsteinPoly objects
+     * m_dCoef - multinomial coefficient of each polynomial in pack
+     * m_vExponents - m_vExponents[p][c] power of component c in polynomial p
      * m_iOrder - order of polynomails
      * m_iDim  - total number of polynomial in pack
+     * m_iArgs - number of arguments (barycentric coordinates given by caller)
+     * m_iComps - number of barycentric components (m_iArgs + 1)
      */
-    ifPolynomial[] m_cPoly = null;
+    double[] m_dCoef = null;
+    int[][] m_vExponents = null;
     final int m_iOrder;
     final int m_iDim;
+    final int m_iArgs;
+    final int m_iComps;
 
-    protected abstract class clBernsteinPoly implements ifPolynomial {
-        /**
-         * m_vInstance - polynomail ordinal number in pack
-         */
-        final int[] m_vInstance;
-
-        protected clBernsteinPoly(final int[] vInstance) {
-            m_vInstance = vInstance;
-        }
-    }
-
-    protected clBernsteinPolyPack(final int iOrder, final int iDim) {
+    protected clBernsteinPolyPack(final int iOrder, final int iDim, final int iArgs) {
         m_iOrder = iOrder;
         m_iDim = iDim;
+        m_iArgs = iArgs;
+        m_iComps = iArgs + 1;
     }
 
+    /**
+     * Computes barycentric components of the argument and checks their range.
+     *
+     * @param v      - arguments of all samples
+     * @param iFrom  - index of the first argument of the sample in v
+     * @param vComps - components of the sample (out)
+     * @throws clPolynomialException - if the argument is out of the simplex
+     */
+    protected abstract void getComponents(double[] v, int iFrom, double[] vComps) throws clPolynomialException;
+
     public final int getPolyDim() {
-        return m_cPoly.length;
+        return m_iDim;
+    }
+
+    public final int getArgsDim() {
+        return m_iArgs;
     }
 
     public final void getVectorOnBarycentric(final double[] v, final double[] vpoly) throws clPolynomialException {
-        for (int i = 0; i < m_cPoly.length; i++) {
-            vpoly[i] = m_cPoly[i].getValue(v);
+        if (v.length != m_iArgs) {
+            throw new clPolynomialException("Wrong bernstein polynomial argument!");
         }
+        getBlockOnBarycentric(v, 1, vpoly);
+    }
+
+    public final void getBlockOnBarycentric(final double[] v,
+                                            final int iSamples,
+                                            final double[] vpoly) throws clPolynomialException {
+        final double[] vComps = new double[m_iComps];
+        final double[][] vPow = new double[m_iComps][m_iOrder + 1];
+        for (int s = 0; s < iSamples; s++) {
+            getComponents(v, s * m_iArgs, vComps);
+            // power tables: vPow[c][e] = b_c^e
+            for (int c = 0; c < m_iComps; c++) {
+                final double[] p = vPow[c];
+                final double b = vComps[c];
+                p[0] = 1.0;
+                for (int e = 1; e <= m_iOrder; e++) {
+                    p[e] = p[e - 1] * b;
+                }
+            }
+            final int iRow = s * m_iDim;
+            for (int i = 0; i < m_iDim; i++) {
+                final int[] vExp = m_vExponents[i];
+                double d = m_dCoef[i];
+                for (int c = 0; c < m_iComps; c++) {
+                    d *= vPow[c][vExp[c]];
+                }
+                vpoly[iRow + i] = d;
+            }
+        }
+    }
+
+    /**
+     * @param n - top
+     * @param k - bottom
+     * @return - binomial coefficient C(n, k)
+     */
+    static long binomial(final int n, final int k) {
+        long c = 1;
+        for (int i = 1; i <= k; i++) {
+            c = c * (n - k + i) / i; // always exact
+        }
+        return c;
     }
 
     // just for debugging!!!
@@ -48,4 +104,3 @@ class clBernsteinPolyPack implements ifBernsteinPack {
         new clBiiBernsteinPolyPack(3);
     }
 }
-
@@ -1,7 +1,5 @@
 package sm.algo.bp;
 
-import sm.base.util.clMathEx;
-
 /**
  * User: Oleg
  * Date: 20/6/2004
@@ -14,48 +12,26 @@ import sm.base.util.clMathEx;
  */
 public final class clUniBernsteinPolyPack extends clBernsteinPolyPack {
 
-    private final class clUniBernsteinPoly extends clBernsteinPoly {
-
-        private clUniBernsteinPoly(final int[] vItem) {
-            super(vItem); // vItem[0] should be [0.._iOrder]
-            /*if (vItem.length != 1 || vItem[0] > m_iOrder) {
-                throw new clPolynomialException("Wrong univariate polynomial construction!");
-            } */
-        }
-
-        public double getValue(final double[] v) throws clPolynomialException {
-
-            if (v.length != 1 || v[0] > 1 || v[0] < 0) {
-                throw new clPolynomialException("Wrong univariate polynomial argument!");
-            }
-
-            final double sd = v[0];
-
-            if (sd > 1 || sd < 0) {
-                throw new clPolynomialException("Wrong univariate polynomial argument!");
-            }
-
-            final int m = m_iOrder;
-            final int j = m_vInstance[0];
-
-            return (double) (clMathEx.fact(m) / (clMathEx.fact(j) * clMathEx.fact(m - j))) * clMathEx.pow(sd, j) *
-                   clMathEx.pow(1.0 - sd, m - j);
-        }
-
-        public String toString() {
-            return "Univariate bernstein polynomial " + getClass().getName();
+    public clUniBernsteinPolyPack(final int iOrder) {
+        super(iOrder, iOrder + 1, 1); // only for univariate
+        m_dCoef = new double[m_iDim];
+        m_vExponents = new int[m_iDim][2];
+        for (int j = 0; j < m_iDim; j++) {// addData new polynomial to the pack
+            m_vExponents[j][0] = j;
+            m_vExponents[j][1] = m_iOrder - j;
+            m_dCoef[j] = (double) binomial(m_iOrder, j);
         }
     }
 
-    public clUniBernsteinPolyPack(final int iOrder) {
-        super(iOrder, iOrder + 1); // only for univariate
-        m_cPoly = new clUniBernsteinPoly[m_iDim];
-        // initialize here the polynomials:
-        final int[][] vInstance = new int[m_iDim][1];
-        for (int i = 0; i < m_iDim; i++) {// addData new polynomial to the pack
-            vInstance[i][0] = i;
-            m_cPoly[i] = new clUniBernsteinPoly(vInstance[i]);
+    protected void getComponents(final double[] v, final int iFrom, final double[] vComps)
+            throws clPolynomialException {
+        final double sd = v[iFrom];
+
+        if (sd > 1 || sd < 0) {
+            throw new clPolynomialException("Wrong univariate polynomial argument!");
         }
+        vComps[0] = sd;
+        vComps[1] = 1.0 - sd;
     }
 
     public String toString() {
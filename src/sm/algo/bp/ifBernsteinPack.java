@@ -9,5 +9,17 @@ package sm.algo.bp;
 public interface ifBernsteinPack {
     void getVectorOnBarycentric(double[] v, double[] vpoly) throws clPolynomialException;
 
+    /**
+     * Evaluates the whole pack for a block of samples.
+     *
+     * @param v        - barycentric arguments, iSamples x getArgsDim() row by row
+     * @param iSamples - number of samples in block
+     * @param vpoly    - polynomial values, iSamples x getPolyDim() row by row (out)
+     * @throws clPolynomialException - if some argument is out of the simplex
+     */
+    void getBlockOnBarycentric(double[] v, int iSamples, double[] vpoly) throws clPolynomialException;
+
     int getPolyDim();
+
+    int getArgsDim();
 }
@@ -3,8 +3,6 @@ package sm.algo.cast;
 import sm.base.util.clMathEx;
 import sm.base.util.clTracer;
 
-import java.util.Arrays;
-
 /**
  * User: Oleg
  * Date: 20/6/2004
@@ -12,12 +10,66 @@ import java.util.Arrays;
  * Description: ...
  */
 public final class clBiiCasteljau extends clCasteljau {
-    private double[] m_vFirstEndKnot = null;
-    private double[] m_vSecondEndKnot = null;
-    private double[] m_vThirdEndKnot = null;
+    /**
+     * Triangular index maps of all the levels of the algorithm, built once in ctor.
+     * Level r keeps b(i,j,k), i + j + k = m - r, ordered by i then j, starting from m_vLevelOffset[r].
+     * m_vPrevI[n], m_vPrevJ[n], m_vPrevK[n] - where b(i+1,j,k), b(i,j+1,k), b(i,j,k+1) of the
+     * previous level are stored for the point n.
+     */
+    private final int[] m_vLevelOffset;
+    private final int[] m_vPrevI;
+    private final int[] m_vPrevJ;
+    private final int[] m_vPrevK;
+    // scratch buffers: points of all the levels (x and y)
+    private final double[] m_dKnotX;
+    private final double[] m_dKnotY;
+    // end knots of the last but one level
+    private final int m_iFirstEndKnot;
+    private final int m_iSecondEndKnot;
+    private final int m_iThirdEndKnot;
+    private final double[] m_vxest = new double[2];
+    private final double[] m_vxnext = new double[2];
 
     public clBiiCasteljau(final int iOrder) {
         super(iOrder, (iOrder + 1) * (iOrder + 2) >> 1);
+
+        final int m = m_iOrder;
+        m_vLevelOffset = new int[m + 2];
+        for (int r = 0; r <= m; r++) {
+            m_vLevelOffset[r + 1] = m_vLevelOffset[r] + ((m - r + 1) * (m - r + 2) >> 1);
+        }
+        final int iTotal = m_vLevelOffset[m + 1];
+        m_vPrevI = new int[iTotal];
+        m_vPrevJ = new int[iTotal];
+        m_vPrevK = new int[iTotal];
+        m_dKnotX = new double[iTotal];
+        m_dKnotY = new double[iTotal];
+        for (int r = 1; r <= m; r++) {
+            final int n = m - r;
+            final int iPrev = m_vLevelOffset[r - 1];
+            int iCounter = m_vLevelOffset[r];
+            for (int i = 0; i <= n; i++) {
+                for (int j = 0; j <= n - i; j++) {
+                    m_vPrevI[iCounter] = iPrev + getIndexOnLevel(n + 1, i + 1, j);
+                    m_vPrevJ[iCounter] = iPrev + getIndexOnLevel(n + 1, i, j + 1);
+                    m_vPrevK[iCounter] = iPrev + getIndexOnLevel(n + 1, i, j);
+                    iCounter++;
+                }
+            }
+        }
+        m_iFirstEndKnot = m_vLevelOffset[m - 1];
+        m_iSecondEndKnot = m_iFirstEndKnot + 1;
+        m_iThirdEndKnot = m_iFirstEndKnot + 2;
+    }
+
+    /**
+     * @param n - level degree: i + j + k = n
+     * @param i - first index
+     * @param j - second index
+     * @return - position of b(i,j,n-i-j) within its level
+     */
+    private static int getIndexOnLevel(final int n, final int i, final int j) {
+        return i * (n + 1) - (i * (i - 1) >> 1) + j;
     }
 
     public void setKnotsUniformly(final double[] vBMin, final double[] vBMax) throws clCasteljauException {
@@ -88,78 +140,39 @@ public final class clBiiCasteljau extends clCasteljau {
             throw new clCasteljauException("Invalid configuration parameters!!");
         }
 
-        final int iNumberOfBaseKnots = m_iDim;
-
+        final int p = m_iDim;
         final int m = m_iOrder;
-        if (m_pKnotB.length != iNumberOfBaseKnots) {
+        if (m_pKnotB.length != p) {
             throw new clCasteljauException("Invalid configuration parameters!!");
         }
 
-        final double[][] db = new double[m * iNumberOfBaseKnots + 1][2];
-
-        System.arraycopy(m_pKnotB, 0, db, 0, iNumberOfBaseKnots);
-
-        final int p = iNumberOfBaseKnots;
-
-        String[] pIndexStruct = null;
+        final double[] dx = m_dKnotX;
+        final double[] dy = m_dKnotY;
+        for (int i = 0; i < p; i++) {
+            dx[i] = m_pKnotB[i][0];
+            dy[i] = m_pKnotB[i][1];
+        }
+        // all the levels r = 1..m one after another, b(i,j,k) = u*b(i+1,j,k) + v*b(i,j+1,k) + w*b(i,j,k+1)
+        final int[] vi = m_vPrevI;
+        final int[] vj = m_vPrevJ;
+        final int[] vk = m_vPrevK;
+        for (int n = p; n < dx.length; n++) {
+            dx[n] = u * dx[vi[n]] + v * dx[vj[n]] + w * dx[vk[n]];
+            dy[n] = u * dy[vi[n]] + v * dy[vj[n]] + w * dy[vk[n]];
+        }
 
-        for (int nLevel = 0; nLevel < m + 1; nLevel++) {
-            if (m_bDebug) {
-                clTracer.straceln("Level " + nLevel);
-            }
-            String sLog = "";
-            final int r = nLevel;  //  r = 0..m-1
-
-            // TODO: optimize algorithm
-            final int iPolyPackNumber = (m - r + 1) * (m - r + 2) >> 1;
-            final String[] pIndexStructPrev = pIndexStruct;
-            pIndexStruct = new String[iPolyPackNumber];
-
-            int iCounter = 0;
-
-            for (int i = 0; i <= m - r; i++) {
-                for (int j = 0; j <= m - r; j++) {
-                    for (int k = 0; k <= m - r; k++) {
-                        if (i + j + k == m - r) {
-
-                            pIndexStruct[iCounter] = "" + i + j + k;
-                            //  then for these i,j,k
-                            //  have to do mapping ijk <-> with one number
-                            //  we could use String mapping
-                            final int bijk = iCounter;
-                            if (r != 0) {
-                                //1:
-                                final int bim1jk = Arrays.binarySearch(pIndexStructPrev, "" + (i + 1) + j + k);
-                                //2:
-                                final int bijm1k = Arrays.binarySearch(pIndexStructPrev, "" + i + (j + 1) + k);
-                                //3:
-                                final int bijkm1 = Arrays.binarySearch(pIndexStructPrev, "" + i + j + (k + 1));
-
-                                db[r * p + bijk][0] = u * db[(r - 1) * p + bim1jk][0] +
-                                                      v * db[(r - 1) * p + bijm1k][0] +
-                                                      w * db[(r - 1) * p + bijkm1][0];
-                                db[r * p + bijk][1] = u * db[(r - 1) * p + bim1jk][1] +
-                                                      v * db[(r - 1) * p + bijm1k][1] +
-                                                      w * db[(r - 1) * p + bijkm1][1];
-                            }
-
-                            sLog += " " + db[r * p + bijk][0] + ' ' + db[r * p + bijk][1] + ';';
-
-                            iCounter++;
-                        }
-                    }
+        if (m_bDebug) {
+            for (int r = 0; r <= m; r++) {
+                String sLog = "Level " + r;
+                for (int n = m_vLevelOffset[r]; n < m_vLevelOffset[r + 1]; n++) {
+                    sLog += " " + dx[n] + ' ' + dy[n] + ';';
                 }
-            }
-            if (m_bDebug) {
                 clTracer.straceln(sLog);
             }
         }
 
-        System.arraycopy(db[p * m], 0, vX, 0, 2);
-
-        m_vFirstEndKnot = db[p * (m - 1)];
-        m_vSecondEndKnot = db[p * (m - 1) + 1];
-        m_vThirdEndKnot = db[p * (m - 1) + 2];
+        vX[0] = dx[dx.length - 1];
+        vX[1] = dy[dy.length - 1];
 
         if (m_bDebug) {
             clTracer.straceln("X = " + vX[0] + "; " + vX[1]);
@@ -188,7 +201,13 @@ public final class clBiiCasteljau extends clCasteljau {
         }
 
         int i = 0; //   iteration number
-        final double[] vxest = new double[2];
+        final double[] vxest = m_vxest;
+        final double[] dx = m_dKnotX;
+        final double[] dy = m_dKnotY;
+        final int e1 = m_iFirstEndKnot;
+        final int e2 = m_iSecondEndKnot;
+        final int e3 = m_iThirdEndKnot;
+        double diff = 0.0;
 
         while (i++ < m_iMaxIteration) {
             //  knots should be already predetermined!!!
@@ -197,33 +216,33 @@ public final class clBiiCasteljau extends clCasteljau {
             buildKnots(vuv, vxest);
 
             //  backpropagation rule for generating new point:
-            final double diff = Math.sqrt((vxest[0] - x1) * (vxest[0] - x1) + (vxest[1] - x2) * (vxest[1] - x2));
+            diff = Math.sqrt((vxest[0] - x1) * (vxest[0] - x1) + (vxest[1] - x2) * (vxest[1] - x2));
             if (diff < m_dEpsilon) {
                 break;
             }
 
             //  TODO: nLearningRate could change its value to more perfect learning
-            final double[] vxnext = new double[2];
+            final double[] vxnext = m_vxnext;
             vxnext[0] = vxest[0] + m_dAlpha * (x1 - vxest[0]);
             vxnext[1] = vxest[1] + m_dAlpha * (x2 - vxest[1]);
 
 
-            final double det = clMathEx.det(m_vFirstEndKnot[0], m_vSecondEndKnot[0], m_vThirdEndKnot[0],
-                                            m_vFirstEndKnot[1], m_vSecondEndKnot[1], m_vThirdEndKnot[1],
+            final double det = clMathEx.det(dx[e1], dx[e2], dx[e3],
+                                            dy[e1], dy[e2], dy[e3],
                                             1.0, 1.0, 1.0);
 
 
             /*
-            final double w1 = clMathEx.det( vxnext[0], m_vSecondEndKnot[0], m_vThirdEndKnot[0],
-                                            vxnext[1], m_vSecondEndKnot[1], m_vThirdEndKnot[1],
+            final double w1 = clMathEx.det( vxnext[0], dx[e2], dx[e3],
+                                            vxnext[1], dy[e2], dy[e3],
                                             1.0, 1.0, 1.0); */
 
-            final double v1 = clMathEx.det(m_vFirstEndKnot[0], vxnext[0], m_vThirdEndKnot[0],
-                                           m_vFirstEndKnot[1], vxnext[1], m_vThirdEndKnot[1],
+            final double v1 = clMathEx.det(dx[e1], vxnext[0], dx[e3],
+                                           dy[e1], vxnext[1], dy[e3],
                                            1.0, 1.0, 1.0);
 
-            final double u1 = clMathEx.det(m_vFirstEndKnot[0], m_vSecondEndKnot[0], vxnext[0],
-                                           m_vFirstEndKnot[1], m_vSecondEndKnot[1], vxnext[1],
+            final double u1 = clMathEx.det(dx[e1], dx[e2], vxnext[0],
+                                           dy[e1], dy[e2], vxnext[1],
                                            1.0, 1.0, 1.0);
 
             u = u1 / det;
@@ -253,6 +272,115 @@ public final class clBiiCasteljau extends clCasteljau {
                 clTracer.straceln("Iteration " + i + ": u = " + u + ", v = " + v + ", delta = " + diff);
             }
         }
+        m_iLastIterations = Math.min(i, m_iMaxIteration);
+        m_dLastResidual = diff;
+    }
+
+    // inverse procedure using damped Newton steps with analytic Jacobian
+    public void mapUsingNewton(final double[] vec, final double[] vuv) throws clCasteljauException {
+        if (vec.length != 2) {
+            throw new clCasteljauException("Invalid vector size!!");
+        }
+
+        final double x1 = vec[0];
+        final double x2 = vec[1];
+
+        // start from the barycentric coordinates with respect to the corner knots
+        final int p0 = 0;
+        final int p1 = m_iOrder;
+        final int p2 = m_iDim - 1;
+        final double det0 = clMathEx.det(m_pKnotB[p0][0], m_pKnotB[p1][0], m_pKnotB[p2][0],
+                                         m_pKnotB[p0][1], m_pKnotB[p1][1], m_pKnotB[p2][1],
+                                         1.0, 1.0, 1.0);
+        if (det0 != 0.0) {
+            vuv[0] = clMathEx.det(m_pKnotB[p0][0], m_pKnotB[p1][0], x1,
+                                  m_pKnotB[p0][1], m_pKnotB[p1][1], x2,
+                                  1.0, 1.0, 1.0) / det0;
+            vuv[1] = clMathEx.det(m_pKnotB[p0][0], x1, m_pKnotB[p2][0],
+                                  m_pKnotB[p0][1], x2, m_pKnotB[p2][1],
+                                  1.0, 1.0, 1.0) / det0;
+        } else {
+            vuv[0] = vuv[1] = 1.0 / 3.0;
+        }
+        clampToSimplex(vuv);
+
+        final double[] vxest = m_vxest;
+        final double[] dx = m_dKnotX;
+        final double[] dy = m_dKnotY;
+        final int e1 = m_iFirstEndKnot;
+        final int e2 = m_iSecondEndKnot;
+        final int e3 = m_iThirdEndKnot;
+        final double m = (double) m_iOrder;
+        final double dTolerance = m_dNewtonTolerance * (1.0 + Math.abs(x1) + Math.abs(x2));
+
+        buildKnots(vuv, vxest);
+        double diff = Math.sqrt((vxest[0] - x1) * (vxest[0] - x1) + (vxest[1] - x2) * (vxest[1] - x2));
+        int i = 0; //   iteration number
+        while (diff > dTolerance && i < m_iMaxNewtonIteration) {
+            i++;
+            // Jacobian of the patch: the sides of the last but one level triangle
+            // dX/du = m * (b(1,0,0) - b(0,0,1)), dX/dv = m * (b(0,1,0) - b(0,0,1))
+            final double a11 = m * (dx[e3] - dx[e1]);
+            final double a12 = m * (dx[e2] - dx[e1]);
+            final double a21 = m * (dy[e3] - dy[e1]);
+            final double a22 = m * (dy[e2] - dy[e1]);
+            final double det = a11 * a22 - a12 * a21;
+            if (det == 0.0) {
+                break; // degenerated patch
+            }
+            final double r1 = x1 - vxest[0];
+            final double r2 = x2 - vxest[1];
+            final double du = (r1 * a22 - a12 * r2) / det;
+            final double dv = (a11 * r2 - r1 * a21) / det;
+
+            // damping: halve the step until the residual decreases
+            final double u0 = vuv[0];
+            final double v0 = vuv[1];
+            double t = 1.0;
+            boolean bImproved = false;
+            for (int h = 0; h < m_iMaxNewtonHalving && !bImproved; h++) {
+                vuv[0] = u0 + t * du;
+                vuv[1] = v0 + t * dv;
+                clampToSimplex(vuv);
+                buildKnots(vuv, vxest);
+                final double d = Math.sqrt((vxest[0] - x1) * (vxest[0] - x1) + (vxest[1] - x2) * (vxest[1] - x2));
+                if (d < diff) {
+                    diff = d;
+                    bImproved = true;
+                }
+                t *= 0.5;
+            }
+            if (!bImproved) { // the nearest point of the patch is reached
+                vuv[0] = u0;
+                vuv[1] = v0;
+                buildKnots(vuv, vxest); // the knots and the estimate of the last trial are rejected
+                break;
+            }
+            if (m_bDebug) {
+                clTracer.straceln("Iteration " + i + ": u = " + vuv[0] + ", v = " + vuv[1] + ", delta = " + diff);
+            }
+        }
+        m_iLastIterations = i;
+        m_dLastResidual = diff;
+    }
+
+    /**
+     * Puts the barycentric point (u, v, 1 - u - v) into the simplex.
+     * v is always cut to 1 - u, since u + v may round to 1 while
+     * 1 - u - v is still slightly negative.
+     *
+     * @param vuv - point (u, v)
+     */
+    private static void clampToSimplex(final double[] vuv) {
+        double u = vuv[0] < 0 ? 0.0 : (vuv[0] > 1 ? 1.0 : vuv[0]);
+        double v = vuv[1] < 0 ? 0.0 : (vuv[1] > 1 ? 1.0 : vuv[1]);
+        final double s = u + v;
+        if (s > 1) {
+            u /= s;
+            v /= s;
+        }
+        vuv[0] = u;
+        vuv[1] = Math.min(v, 1.0 - u);
     }
 
     // inverse procedure using new fast access alg. due to spec. knots!
@@ -293,7 +421,7 @@ public final class clBiiCasteljau extends clCasteljau {
         vuv[0] = u;
         vuv[1] = v;
 
-        final double[] vxest = new double[2];
+        final double[] vxest = m_vxest;
         buildKnots(vuv, vxest);
 
         final double diff = Math.sqrt((vxest[0] - x1) * (vxest[0] - x1) + (vxest[1] - x2) * (vxest[1] - x2));
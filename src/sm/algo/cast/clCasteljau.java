@@ -11,9 +11,14 @@ abstract class clCasteljau implements ifCasteljau {
     static final double m_dEpsilon = 0.001;
     static final double m_dAlpha = 0.2;
     static final boolean m_bDebug = false;
+    static final int m_iMaxNewtonIteration = 50;
+    static final int m_iMaxNewtonHalving = 30;
+    static final double m_dNewtonTolerance = 1e-12; // relative to the point magnitude
     final int m_iOrder;
     final int m_iDim; // _iDim  - total number of knots in set
     double[][] m_pKnotB = null;      //  set of predetermined knots
+    int m_iLastIterations = 0;
+    double m_dLastResidual = 0.0;
 
     protected clCasteljau(final int iOrder, final int iDim) {
         m_iOrder = iOrder;
@@ -24,6 +29,14 @@ abstract class clCasteljau implements ifCasteljau {
         return m_pKnotB;
     }
 
+    public final int getLastIterations() {
+        return m_iLastIterations;
+    }
+
+    public final double getLastResidual() {
+        return m_dLastResidual;
+    }
+
     // straight forward procedure
     protected abstract void buildKnots(double[] vec, double[] vX) throws clCasteljauException;
 
@@ -11,9 +11,13 @@ import sm.base.util.clTracer;
 public final class clUniCasteljau extends clCasteljau {
     private double m_dFirstEndKnot = 0.0;
     private double m_dSecondEndKnot = 0.0;
+    // scratch buffers
+    private final double[] m_dKnots;
+    private final double[] m_vxest = new double[1];
 
     public clUniCasteljau(final int iOrder) {
         super(iOrder, iOrder);
+        m_dKnots = new double[m_iDim];
     }
 
     public void setKnotsUniformly(final double[] vBMin, final double[] vBMax) throws clCasteljauException {
@@ -67,34 +71,33 @@ public final class clUniCasteljau extends clCasteljau {
             throw new clCasteljauException("Invalid vector size!!");
         }
 
-        final double[][] db = new double[m * m][1];
-
-        System.arraycopy(m_pKnotB, 0, db, 0, m);
-
-        for (int nLevel = 0; nLevel < m; nLevel++) {
-            String sLog = "Level " + nLevel;
-            final int r = nLevel;   //  r = 0..m-1
-            for (int j = 0; j < m - r; j++)    //  j = 0..m-r-1
-            {
-                //  TODO: optimize algorithm
-                if (r != 0) {
-                    db[j + r * m][0] = (1.0 - ds) * db[j + (r - 1) * m][0] + ds * db[j + 1 + (r - 1) * m][0];
-                }
-                sLog += " " + db[j + r * m][0];
+        // levels are computed in place: d[j] = (1 - s) * d[j] + s * d[j + 1]
+        final double[] db = m_dKnots;
+        for (int j = 0; j < m; j++) {
+            db[j] = m_pKnotB[j][0];
+        }
+        for (int r = 1; r < m; r++) {   //  r = 1..m-1
+            if (r == m - 1) {
+                m_dFirstEndKnot = db[0];
+                m_dSecondEndKnot = db[1];
+            }
+            for (int j = 0; j < m - r; j++) {    //  j = 0..m-r-1
+                db[j] = (1.0 - ds) * db[j] + ds * db[j + 1];
             }
             if (m_bDebug) {
+                String sLog = "Level " + r;
+                for (int j = 0; j < m - r; j++) {
+                    sLog += " " + db[j];
+                }
                 clTracer.straceln(sLog);
             }
         }
 
-        m_dFirstEndKnot = db[(m - 2) * m][0];
-        m_dSecondEndKnot = db[(m - 2) * m + 1][0];
-
         if (m_dSecondEndKnot == m_dFirstEndKnot) {
             throw new clCasteljauException("Oops!!!");
         }
 
-        vX[0] = db[(m - 1) * m][0];
+        vX[0] = db[0];
         if (m_bDebug) {
             clTracer.straceln("X = " + vX[0]);
         }
@@ -118,13 +121,14 @@ public final class clUniCasteljau extends clCasteljau {
         }
         int i = 0; //   iteration number
 
-        final double[] vxest = new double[1];
+        final double[] vxest = m_vxest;
+        double diff = 0.0;
         while (i++ < m_iMaxIteration) {
             //  knots should be already predetermined!!!
             vs[0] = ds;
             buildKnots(vs, vxest);
             //  backpropagation rule for generating new point:
-            final double diff = Math.abs(vxest[0] - x);
+            diff = Math.abs(vxest[0] - x);
             if (diff < m_dEpsilon) {
                 break;
             }
@@ -147,6 +151,63 @@ public final class clUniCasteljau extends clCasteljau {
                 clTracer.straceln("ds = " + ds + " delta = " + diff);
             }
         }
+        m_iLastIterations = Math.min(i, m_iMaxIteration);
+        m_dLastResidual = diff;
+    }
+
+    // inverse procedure using damped Newton steps with analytic derivative
+    public void mapUsingNewton(final double[] vec, final double[] vs) throws clCasteljauException {
+        if (vec.length != 1) {
+            throw new clCasteljauException("Invalid vector size!!");
+        }
+
+        final double x = vec[0];
+
+        // start from the position with respect to the end knots
+        final double dSpan = m_pKnotB[m_iDim - 1][0] - m_pKnotB[0][0];
+        vs[0] = dSpan != 0.0 ? clamp((x - m_pKnotB[0][0]) / dSpan) : 0.5;
+
+        final double[] vxest = m_vxest;
+        final double m = (double) (m_iDim - 1); // degree of the curve
+        final double dTolerance = m_dNewtonTolerance * (1.0 + Math.abs(x));
+
+        buildKnots(vs, vxest);
+        double diff = Math.abs(vxest[0] - x);
+        int i = 0; //   iteration number
+        while (diff > dTolerance && i < m_iMaxNewtonIteration) {
+            i++;
+            // derivative of the curve: the last but one level segment
+            final double dDer = m * (m_dSecondEndKnot - m_dFirstEndKnot);
+            final double ds = (x - vxest[0]) / dDer;
+
+            // damping: halve the step until the residual decreases
+            final double s0 = vs[0];
+            double t = 1.0;
+            boolean bImproved = false;
+            for (int h = 0; h < m_iMaxNewtonHalving && !bImproved; h++) {
+                vs[0] = clamp(s0 + t * ds);
+                buildKnots(vs, vxest);
+                final double d = Math.abs(vxest[0] - x);
+                if (d < diff) {
+                    diff = d;
+                    bImproved = true;
+                }
+                t *= 0.5;
+            }
+            if (!bImproved) { // the nearest point of the curve is reached
+                vs[0] = s0;
+                break;
+            }
+            if (m_bDebug) {
+                clTracer.straceln("Iteration " + i + ": ds = " + vs[0] + " delta = " + diff);
+            }
+        }
+        m_iLastIterations = i;
+        m_dLastResidual = diff;
+    }
+
+    private static double clamp(final double ds) {
+        return ds < 0 ? 0.0 : (ds > 1 ? 1.0 : ds);
     }
 
     // inverse procedure using new fast access alg. due to spec. knots!
@@ -163,7 +224,7 @@ public final class clUniCasteljau extends clCasteljau {
         final double ds = (x - m_pKnotB[p0][0]) / (m_pKnotB[p1][0] - m_pKnotB[p0][0]);
         vs[0] = ds;
 
-        final double[] vxest = new double[1];
+        final double[] vxest = m_vxest;
         buildKnots(vs, vxest);
 
         final double diff = Math.abs(vxest[0] - x);
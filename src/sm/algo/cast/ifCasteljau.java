@@ -12,4 +12,13 @@ public interface ifCasteljau extends ifKnotsHandling {
 
     // inverse procedure using new fast access alg. due to spec. knots!
     void mapUsingFastAccess(double[] vec, double[] vs) throws clCasteljauException;
+
+    // inverse procedure using damped Newton steps with analytic Jacobian, works for any knots
+    void mapUsingNewton(double[] vec, double[] vs) throws clCasteljauException;
+
+    // number of iterations made by the last inverse mapping
+    int getLastIterations();
+
+    // distance between the given point and the image of the last mapped barycentric point
+    double getLastResidual();
 }
@@ -29,7 +29,7 @@ final class clBBOptPartDesc extends clPartDescription implements ifObjectiveFunc
         // get standard knots distribution
         final double[][] vKnots = m_cKnotHandler.getPredeterminiedKnots();
         // set this distribution as initial for optimizer
-        final clGAOptimizer cGAOptimizer = new clGAOptimizer(vKnots, this, m_cUpperFeedBack);
+        final clGAOptimizer cGAOptimizer = new clGAOptimizer(vKnots, this, m_cUpperFeedBack, null);
         // run optimizer
         cGAOptimizer.optimizeDataSet();
         // here we have an optimal vKnots - so set the knots position and
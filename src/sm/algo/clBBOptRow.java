@@ -36,6 +36,15 @@ final class clBBOptRow extends clBaseRow {
 
     }
 
+    /**
+     * BB part. descriptions share the knots of the function handler, its
+     * de Casteljau state and the data set of the knots optimizer, so they
+     * are identified one after another.
+     */
+    protected boolean isParallelCapable() {
+        return !(m_cPDFunction instanceof ifBBFunction);
+    }
+
     public String toString() {
         return "BB Opt Row " + getClass().getName();
     }
@@ -12,9 +12,12 @@ import sm.base.data.clMatrixData;
 import sm.base.data.ifMatrixData;
 import sm.base.data.ifVectorData;
 import sm.base.util.clCancelException;
+import sm.base.util.clWorkQueue;
 import sm.base.util.ifProgressCallBack;
 import sm.appl.StringResources;
 
+import java.util.concurrent.ExecutorService;
+
 /**
  * User: Oleg
  * Date: Jun 21, 2004
@@ -35,11 +38,19 @@ import sm.appl.StringResources;
  * where f - (uni)bi-variate bezier-bernstein polynomial functions
  */
 class clFunctionBB implements ifBBFunction {
+    // number of samples evaluated by the polynomials pack in one call
+    private static final int c_iBlockRows = 64;
+    // number of samples taken by an expansion worker at once
+    private static final int c_iChunkRows = 1024;
+    // shorter samples are always expanded by the calling thread only
+    private static final int c_iMinParallelRows = 4 * c_iChunkRows;
+
     private final ifProgressCallBack m_cFeedBack;
     private final ifKnotCallBack m_cKnotFeedBack;
     private final int m_iPolyOrder;
     private final boolean m_bFastMethod;
     private final int m_iFunctionID;
+    private ExecutorService m_cExpansionExecutor = null;
 
     // the members below are transient for each call of buildMatrix
     private double[] m_dMin = null;
@@ -50,9 +61,6 @@ class clFunctionBB implements ifBBFunction {
     private int m_iCols = 0;
     private int m_iRows = 0;
     private ifVectorData[] m_cVectorData = null;
-    private double[] m_vbar = null;
-    private double[] m_vpoly = null;
-    private double[] m_vec = null;
 
     /**
      * @param iPolyOrder  - dimension of bernstein polynomials (usually 1,2,3,4,5)
@@ -73,12 +81,27 @@ class clFunctionBB implements ifBBFunction {
         m_iFunctionID = iIndex;
     }
 
+    /**
+     * Sets the executor which helps to expand long samples: the samples are split
+     * into chunks and every worker maps its chunks with its own Casteljau instance.
+     *
+     * @param executor - executor for the expansion, null - the calling thread only
+     */
+    public void setExpansionExecutor(final ExecutorService executor) {
+        m_cExpansionExecutor = executor;
+    }
+
+    final ExecutorService getExpansionExecutor() {
+        return m_cExpansionExecutor;
+    }
+
     /**
      * @param vd - input set of vectors. vd[i] = Xi, iRows == M, iCols = dimension of bernstein polynomials
      * @return - expanded matrix for bezier-bernstein model
      * @throws clCancelException - provides a machinery for the process interruption
      */
-    public ifMatrixData buildMatrix(final ifVectorData[] vd) throws clCancelException {
+    public synchronized ifMatrixData buildMatrix(final ifVectorData[] vd) throws clCancelException {
+        // synchronized: all the members below are transient state of the call
         m_cVectorData = vd;
 
         m_iArgs = m_cVectorData.length;
@@ -94,9 +117,6 @@ class clFunctionBB implements ifBBFunction {
         m_iCols = m_cBernsteinPack.getPolyDim();
         m_iRows = m_cVectorData[0].getArraySize();
         final ifMatrixData cMatrixData = new clMatrixData(m_iRows, m_iCols);
-        m_vbar = new double[m_iArgs];
-        m_vpoly = new double[m_iCols];
-        m_vec = new double[m_iArgs];
 
         // determine here m_dMin and m_dMax vars! and set uniform positions!
         setKnots();  // this may be overriden to support different knot distributions
@@ -111,45 +131,60 @@ class clFunctionBB implements ifBBFunction {
         return cMatrixData;
     }
 
+    /**
+     * @param iArgs - number of input vectors
+     * @return - number of bernstein polynomials of the pack, 0 if iArgs is not supported
+     */
+    public int getNumberOfColumns(final int iArgs) {
+        if (iArgs == 2) {
+            return (m_iPolyOrder + 1) * (m_iPolyOrder + 2) >> 1;
+        } else if (iArgs == 1) {
+            return m_iPolyOrder + 1;
+        }
+        return 0;
+    }
+
     public void buildOnKnots(final double[][] vKnots, final ifMatrixData md) throws clCancelException {
         try {
             m_cCasteljau.setPredeterminiedKnots(vKnots); // actually unnecessary
-            for (int i = 0; i < m_iRows; i++) {
-                boolean bContinue = true;
-                if (m_cFeedBack != null) {
-                    final int p = 100 * i / m_iRows;
-                    bContinue = m_cFeedBack.progressCallback(p, StringResources.get(StringResources.progressflow) + p);
-                }
+        } catch (clCasteljauException e) {
+            throw new clCancelException("Casteljau error!" + e);
+        }
+        expandOnKnots(vKnots, md);
 
-                if (!bContinue) {
-                    throw new clCancelException(StringResources.get(StringResources.callbackbreak));
-                }
-                // load current point (x1,x2,..xN) into temporary vector m_vec
-                for (int j = 0; j < m_iArgs; j++) {
-                    m_vec[j] = m_cVectorData[j].getValue(i);
-                }
-                // find barycentric coordinates
-                if (m_bFastMethod) {
-                    m_cCasteljau.mapUsingFastAccess(m_vec, m_vbar);
-                } else {
-                    m_cCasteljau.mapUsingBackProp(m_vec, m_vbar);
-                }
-                // calculate polynomial coef. values for the given barycentric m_vbar
-                m_cBernsteinPack.getVectorOnBarycentric(m_vbar, m_vpoly);
-                // put this coefs. into resulting matrix
-                for (int j = 0; j < m_iCols; j++) {
-                    md.setValue(i, j, m_vpoly[j]);
-                }
-            }
-            if (m_cFeedBack != null) {
-                m_cFeedBack.progressCallback(100, "100%");
-            }
-            m_cKnotFeedBack.refresh();
-        } catch (clPolynomialException e) {
-            throw new clCancelException("Polynomial error!" + e);
+        if (m_cFeedBack != null) {
+            m_cFeedBack.progressCallback(100, "100%");
+        }
+        m_cKnotFeedBack.refresh();
+    }
+
+    /**
+     * Builds the matrix on the given knots without touching the knots of the function,
+     * so it may be called concurrently (e.g. by the GA objective) within one buildMatrix call.
+     *
+     * @param vKnots - knots to build on
+     * @param md     - the matrix to fill in
+     * @throws clCancelException - mapping error or user break
+     */
+    final void expandOnKnots(final double[][] vKnots, final ifMatrixData md) throws clCancelException {
+        new clExpansion(md, vKnots).run(m_iRows >= c_iMinParallelRows ? m_cExpansionExecutor : null);
+    }
+
+    /**
+     * @param vKnots - knots to be shared (read only)
+     * @return - new Casteljau instance for one more expansion worker
+     * @throws clCancelException - if knots are invalid
+     */
+    private ifCasteljau createCasteljau(final double[][] vKnots) throws clCancelException {
+        final ifCasteljau cCasteljau = m_iArgs == 2 ?
+                                       (ifCasteljau) new clBiiCasteljau(m_iPolyOrder) :
+                                       new clUniCasteljau(m_iPolyOrder);
+        try {
+            cCasteljau.setPredeterminiedKnots(vKnots);
         } catch (clCasteljauException e) {
             throw new clCancelException("Casteljau error!" + e);
         }
+        return cCasteljau;
     }
 
     /**
@@ -201,4 +236,94 @@ class clFunctionBB implements ifBBFunction {
     public String toString() {
         return "B-B partial";
     }
+
+    /**
+     * One expansion of the samples into the given matrix. The samples are split
+     * into chunks, the workers take the chunks one by one and write disjoint rows
+     * of the matrix. Every worker maps its chunks with its own Casteljau instance.
+     * Progress and user break are handled for all the workers together.
+     */
+    private final class clExpansion extends clWorkQueue {
+        private final ifMatrixData m_cMatrixData;
+        private final double[][] m_vKnots;
+        // the members below are guarded by this
+        private int m_iDoneRows = 0;
+        private int m_iReported = -1;
+
+        private clExpansion(final ifMatrixData md, final double[][] vKnots) {
+            super((m_iRows + c_iChunkRows - 1) / c_iChunkRows, StringResources.get(StringResources.callbackbreak));
+            m_cMatrixData = md;
+            m_vKnots = vKnots;
+        }
+
+        protected Object createState() throws clCancelException {
+            return new clExpansionWorker(createCasteljau(m_vKnots));
+        }
+
+        protected void runTask(final int iChunk, final Object cState) throws clCancelException {
+            final clExpansionWorker w = (clExpansionWorker) cState;
+            final double[] vec = w.m_vec;
+            final double[] vbar = w.m_vbar;
+            final double[] vbarBlock = w.m_vbarBlock;
+            final double[] vpolyBlock = w.m_vpolyBlock;
+            try {
+                final int iTo = Math.min(m_iRows, (iChunk + 1) * c_iChunkRows);
+                for (int i0 = iChunk * c_iChunkRows; i0 < iTo && !isStopped(); i0 += c_iBlockRows) {
+                    final int iBlock = Math.min(c_iBlockRows, iTo - i0);
+                    for (int r = 0; r < iBlock; r++) {
+                        // load current point (x1,x2,..xN) into temporary vector vec
+                        for (int j = 0; j < m_iArgs; j++) {
+                            vec[j] = m_cVectorData[j].getValue(i0 + r);
+                        }
+                        // find barycentric coordinates
+                        if (m_bFastMethod) {
+                            w.m_cCasteljau.mapUsingFastAccess(vec, vbar);
+                        } else {
+                            w.m_cCasteljau.mapUsingNewton(vec, vbar);
+                        }
+                        System.arraycopy(vbar, 0, vbarBlock, r * m_iArgs, m_iArgs);
+                    }
+                    // calculate polynomial coef. values for the gathered barycentrics
+                    m_cBernsteinPack.getBlockOnBarycentric(vbarBlock, iBlock, vpolyBlock);
+                    // put this coefs. into resulting matrix
+                    for (int r = 0; r < iBlock; r++) {
+                        for (int j = 0; j < m_iCols; j++) {
+                            m_cMatrixData.setValue(i0 + r, j, vpolyBlock[r * m_iCols + j]);
+                        }
+                    }
+                    progress(iBlock);
+                }
+            } catch (clPolynomialException e) {
+                throw new clCancelException("Polynomial error!" + e);
+            } catch (clCasteljauException e) {
+                throw new clCancelException("Casteljau error!" + e);
+            }
+        }
+
+        private synchronized void progress(final int iRows) {
+            m_iDoneRows += iRows;
+            final int p = (int) (100L * m_iDoneRows / m_iRows);
+            if (m_cFeedBack != null && p != m_iReported && !isStopped()) {
+                m_iReported = p;
+                if (!m_cFeedBack.progressCallback(p, StringResources.get(StringResources.progressflow) + p)) {
+                    fail(new clCancelException(StringResources.get(StringResources.callbackbreak)));
+                }
+            }
+        }
+    }
+
+    /**
+     * Casteljau instance and buffers of one expansion worker.
+     */
+    private final class clExpansionWorker {
+        private final ifCasteljau m_cCasteljau;
+        private final double[] m_vec = new double[m_iArgs];
+        private final double[] m_vbar = new double[m_iArgs];
+        private final double[] m_vbarBlock = new double[c_iBlockRows * m_iArgs];
+        private final double[] m_vpolyBlock = new double[c_iBlockRows * m_iCols];
+
+        private clExpansionWorker(final ifCasteljau cCasteljau) {
+            m_cCasteljau = cCasteljau;
+        }
+    }
 }
@@ -1,8 +1,10 @@
 package sm.algo;
 
+import sm.base.data.clMatrixData;
 import sm.base.data.ifMatrixData;
 import sm.base.util.clCancelException;
 import sm.base.util.ifProgressCallBack;
+import sm.regr.clCholesky;
 import sm.regr.clMatrix;
 import sm.regr.ifMatrixTransform;
 
@@ -58,7 +60,8 @@ final class clFunctionBBGAOpt extends clFunctionBB {
             throw new clCancelException("Not supported optimization  - parameter = " + m_iOptimization);
         }
 
-        final clGAOptimizer cGAOptimizer = new clGAOptimizer(vKnots, optimizer, m_cUpperFeedBack);
+        final clGAOptimizer cGAOptimizer = new clGAOptimizer(vKnots, optimizer, m_cUpperFeedBack,
+                                                             getExpansionExecutor());
 
         m_cMatrixData = md;
         // get optimal knot set! into vKnots
@@ -73,13 +76,18 @@ final class clFunctionBBGAOpt extends clFunctionBB {
 
     /**
      * @param vKnots - given knots
-     * @return - covariance matrix built on these knots
+     * @return - information matrix built on these knots
      * @throws clCancelException - may be interrupted by user
      */
-    private ifMatrixTransform buildCovOnKnots(final double[][] vKnots) throws clCancelException {
-
-        super.buildOnKnots(vKnots, m_cMatrixData);
-        return new clMatrix(m_cMatrixData).getCovariance();
+    private ifMatrixTransform buildInformOnKnots(final double[][] vKnots) throws clCancelException {
+        if (getExpansionExecutor() == null) {
+            super.buildOnKnots(vKnots, m_cMatrixData);
+            return new clMatrix(m_cMatrixData).gram();
+        }
+        // the population is evaluated concurrently: own matrix and own Casteljau per call
+        final ifMatrixData md = new clMatrixData(m_cMatrixData.getRows(), m_cMatrixData.getCols());
+        expandOnKnots(vKnots, md);
+        return new clMatrix(md).gram();
     }
 
     public String toString() {
@@ -92,8 +100,13 @@ final class clFunctionBBGAOpt extends clFunctionBB {
     private final class clAOptimizator implements ifObjectiveFunction {
         public double getObjectiveFunctionValue(final double[][] vArgs) throws clCancelException {
 
-            final double y = buildCovOnKnots(vArgs).trace();
-            return y;
+            final ifMatrixTransform xPr = buildInformOnKnots(vArgs);
+            final clCholesky cFactor = new clCholesky(xPr.get2DArrayPtr());
+            if (cFactor.isSPD()) {
+                return cFactor.inverseTrace();
+            }
+            xPr.invert(); // get cov. matrix
+            return xPr.trace();
         }
     }
 
@@ -103,8 +116,13 @@ final class clFunctionBBGAOpt extends clFunctionBB {
     private final class clDOptimizator implements ifObjectiveFunction {
         public double getObjectiveFunctionValue(final double[][] vArgs) throws clCancelException {
 
-            final double y = buildCovOnKnots(vArgs).absdet();
-            return y;
+            final ifMatrixTransform xPr = buildInformOnKnots(vArgs);
+            final clCholesky cFactor = new clCholesky(xPr.get2DArrayPtr());
+            if (cFactor.isSPD()) {
+                return cFactor.inverseAbsDet();
+            }
+            xPr.invert(); // get cov. matrix
+            return xPr.absdet();
         }
     }
 
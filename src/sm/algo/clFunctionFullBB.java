@@ -63,6 +63,13 @@ final class clFunctionFullBB extends clFunctionBB {
         return md;
     }
 
+    public int getNumberOfColumns(final int iArgs) {
+        if (iArgs == 2) {
+            return super.getNumberOfColumns(2) + 2 * super.getNumberOfColumns(1);
+        }
+        return super.getNumberOfColumns(iArgs);
+    }
+
     public String toString() {
         return "B-B full";
     }
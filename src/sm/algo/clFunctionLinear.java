@@ -3,7 +3,7 @@ package sm.algo;
 import sm.base.data.clMatrixData;
 import sm.base.data.ifMatrixData;
 import sm.base.data.ifVectorData;
-import sm.base.md.ifFunction;
+import sm.base.md.ifMonomialFunction;
 
 /**
  * User: Oleg
@@ -18,7 +18,7 @@ import sm.base.md.ifFunction;
  * .   .   .
  * yM = a0M + a1Mx1M + a2Mx2M + ... + aNMxNM
  */
-final class clFunctionLinear implements ifFunction {
+final class clFunctionLinear implements ifMonomialFunction {
     /**
      * @param vd - input set of vectors. vd[i] = Xi, iRows == M, iCols = N + 1.
      * @return - expanded matrix for linear model
@@ -38,6 +38,18 @@ final class clFunctionLinear implements ifFunction {
         return md;
     }
 
+    public int getNumberOfColumns(final int iArgs) {
+        return iArgs + 1;
+    }
+
+    public int[][] getExponents(final int iArgs) {
+        final int[][] vExp = new int[iArgs + 1][iArgs]; // free term has zero exponents
+        for (int j = 1; j <= iArgs; j++) {
+            vExp[j][j - 1] = 1;
+        }
+        return vExp;
+    }
+
     public String toString() {
         return "Linear";
     }
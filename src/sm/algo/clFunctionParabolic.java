@@ -3,7 +3,7 @@ package sm.algo;
 import sm.base.data.clMatrixData;
 import sm.base.data.ifMatrixData;
 import sm.base.data.ifVectorData;
-import sm.base.md.ifFunction;
+import sm.base.md.ifMonomialFunction;
 
 /**
  * User: Oleg
@@ -19,7 +19,7 @@ import sm.base.md.ifFunction;
  * yM = a0M + a1Mx1M + ... + aNMxNM + ... + aK2xP2xQ2 + ...
  */
 
-final class clFunctionParabolic implements ifFunction {
+final class clFunctionParabolic implements ifMonomialFunction {
     /**
      * @param vd - input set of vectors. vd[i] = Xi, iRows == M, iCols = N + 1 + (N+1)*N/2.
      * @return - expanded matrix for parabolic model
@@ -47,6 +47,27 @@ final class clFunctionParabolic implements ifFunction {
         return md;
     }
 
+    public int getNumberOfColumns(final int iArgs) {
+        return 1 + iArgs + ((iArgs + 1) * iArgs >> 1);
+    }
+
+    public int[][] getExponents(final int iArgs) {
+        final int iCols = 1 + iArgs + ((iArgs + 1) * iArgs >> 1);
+        final int[][] vExp = new int[iCols][iArgs]; // free term has zero exponents
+        int k = 1;
+        for (int j = 0; j < iArgs; j++) {
+            vExp[k++][j] = 1;
+        }
+        for (int j = 0; j < iArgs; j++) {
+            for (int j2 = j; j2 < iArgs; j2++) {
+                vExp[k][j] += 1;
+                vExp[k][j2] += 1;
+                k++;
+            }
+        }
+        return vExp;
+    }
+
     public String toString() {
         return "Parabolic";
     }
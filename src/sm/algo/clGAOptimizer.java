@@ -7,6 +7,8 @@ import sm.base.util.clTracer;
 import sm.base.util.ifProgressCallBack;
 import sm.appl.StringResources;
 
+import java.util.concurrent.ExecutorService;
+
 
 /**
  * User: Oleg
@@ -15,12 +17,14 @@ import sm.appl.StringResources;
  * Description: this class is developed to optimize knot positions using
  * genetic algorithm; may be used for optimizations with 2d data at all
  */
-final class clGAOptimizer implements Evaluator {
+final class clGAOptimizer implements BatchEvaluator {
     // Declare variables for the GA parameters and set them to some default values.
     private static final int popsize = 10;
     private static final int ngen = 100;
     private static final float pmut = (float) 0.01;
     private static final float pcross = (float) 0.6;
+    private static final int cachesize = popsize * ngen; // the same knots come again and again
+    private static final int nstall = 10; // most searches converge in 20-30 generations, stop 10 later
 
     private final double[][] m_vData; // the data set which should be optimized
     private final ifObjectiveFunction m_cOptimizer; // optimization function based on the data set
@@ -28,22 +32,27 @@ final class clGAOptimizer implements Evaluator {
     private final GASimpleGA ga;
     private final ifProgressCallBack m_cFeedBack;
 
-    private int m_iProgressCounter = 0;
+    private final boolean m_bConcurrent;
+    private int m_iProgressCounter = 0; // guarded by this
 
     /**
      * @param vData      - the data to be optimized, will be optimized also
      * @param iOptimizer - optimization function
      * @param cb         - callback
+     * @param executor   - executor to evaluate the population, null - serial evaluation.
+     *                   The optimization function must be reentrant to be used with executor.
      * @throws clCancelException - can be interrupted by user
      */
     clGAOptimizer(final double[][] vData,
                   final ifObjectiveFunction iOptimizer,
-                  final ifProgressCallBack cb) throws clCancelException {
+                  final ifProgressCallBack cb,
+                  final ExecutorService executor) throws clCancelException {
         // how long Phenotype vector should be - depends on m_iArgs,
         // we represent here in Phenotype two dim array of data as one dim.!!!
         m_vData = vData;
         m_cOptimizer = iOptimizer;
         m_cFeedBack = cb;
+        m_bConcurrent = executor != null;
         // Create a phenotype for the data variables.  The number of bits you can use to
         // represent any number is limited by the type of computer you are using.  In
         // this case, we use 16 bits to represent a floating point number whose value
@@ -73,6 +82,12 @@ final class clGAOptimizer implements Evaluator {
         ga.scaling(scaling);
         ga.scoreFrequency(10);
         ga.flushFrequency(50);
+        ga.scoreFilename(null);     // many optimizers may run at once, keep the scores in memory
+        ga.evaluationExecutor(executor);
+        ga.evaluationCache(cachesize);
+        final GAEarlyStopping stopping = new GAEarlyStopping();
+        stopping.stall(nstall);
+        ga.terminator(stopping);
     }
 
     void optimizeDataSet() throws clCancelException {
@@ -83,7 +98,9 @@ final class clGAOptimizer implements Evaluator {
         // read the optimal data set in the result buffer m_vData
         getDataFromGenome(genome, m_vData);
         // just show data for debug!!
-        clTracer.straceln("the ga found an optimum at the :");
+        clTracer.straceln("the ga found an optimum (" + ga.statistics().cacheMisses() + " evaluations, " +
+                          ga.statistics().cacheHits() + " cache hits, stopped: " +
+                          ga.statistics().termination() + ") at the :");
         (new clMatrixData(m_vData)).dumpData();
     }
 
@@ -93,20 +110,45 @@ final class clGAOptimizer implements Evaluator {
     public float evaluator(final GAGenome g) throws clCancelException {
         // get the current genome
         final GABin2DecGenome genome = (GABin2DecGenome) g;
-        // get the temp. buffer data from genome
-        final double[][] vData = (double[][]) g.userData();
+        // get the temp. buffer data from genome (the buffer is shared by all genomes!)
+        final double[][] vData = m_bConcurrent ?
+                                 new double[m_vData.length][m_vData[0].length] : (double[][]) g.userData();
         // read the current data set from genome
         getDataFromGenome(genome, vData);
+        return objective(vData);
+    }
 
+    /**
+     * The population is scored in batches: one data buffer serves the whole batch
+     * (the batches may run concurrently, so the buffer is not shared between them)
+     * and the data sets are read from the decoded phenotypes.
+     */
+    public void evaluator(final GAGenome[] g, final int m, final float[] x, final int width, final float[] s)
+            throws clCancelException {
+        final double[][] vData = new double[m_vData.length][m_vData[0].length];
+        for (int k = 0; k < m; k++) {
+            int l = k * width;
+            for (int i = 0; i < vData.length; i++) {
+                for (int j = 0; j < vData[0].length; j++) {
+                    vData[i][j] = (double) x[l++];
+                }
+            }
+            s[k] = objective(vData);
+        }
+    }
+
+    private float objective(final double[][] vData) throws clCancelException {
         // build the current matrix with optimal data set!
         final float y = (float) m_cOptimizer.getObjectiveFunctionValue(vData);
         // clTracer.straceln("opt = " + y);
         // estimated number of calls :  0.8*popsize*ngen; SO:
-        int p = 120 * m_iProgressCounter++ / (popsize * ngen);
-        if (p > 100) p = 100;
         boolean bContinue = true;
-        if (m_cFeedBack != null) {
-            bContinue = m_cFeedBack.progressCallback(p, StringResources.get(StringResources.progressflow) + p);
+        synchronized (this) {
+            int p = 120 * m_iProgressCounter++ / (popsize * ngen);
+            if (p > 100) p = 100;
+            if (m_cFeedBack != null) {
+                bContinue = m_cFeedBack.progressCallback(p, StringResources.get(StringResources.progressflow) + p);
+            }
         }
         if (!bContinue) {
             throw new clCancelException(StringResources.get(StringResources.callbackbreak));
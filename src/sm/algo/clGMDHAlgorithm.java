@@ -13,6 +13,7 @@ import sm.regr.clMatrix;
 import sm.regr.ifMatrixTransform;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
 
 /**
  * User: Oleg
@@ -51,7 +52,7 @@ public class clGMDHAlgorithm extends clBaseAlgorithm {
         else
         {
             // row building:
-            ifRowHandling r = createRow(m_dInput, null); /*first row does not have a parent*/
+            ifRowHandling r = newRow(m_dInput, null); /*first row does not have a parent*/
             m_dNumberOfParamters = r.getNumberOfParamters();
             final int reduceModels = 1;
             do {
@@ -74,7 +75,7 @@ public class clGMDHAlgorithm extends clBaseAlgorithm {
         ifRowHandling nextRow = null;
         try {
             final ifMatrixData dNextInput = parentRow.getNextInput(reduceModels);
-            nextRow = createRow(dNextInput, parentRow);
+            nextRow = newRow(dNextInput, parentRow);
         } catch (clCancelException e) {
             clTracer.straceln("Last row: " + e.getMessage());
             clTracer.straceln("Final estimation: " + clMathEx.formatDouble(m_dModelFitness, 4));
@@ -82,6 +83,19 @@ public class clGMDHAlgorithm extends clBaseAlgorithm {
         return nextRow;
     }
 
+    /**
+     * Sets the executor for the rows and, if the function is BB, for expanding
+     * long samples in parallel and evaluating the GA knot populations.
+     *
+     * @param executor - executor for the algorithm, null - sequential mode
+     */
+    public void setExecutor(final ExecutorService executor) {
+        super.setExecutor(executor);
+        if (m_cFunction instanceof ifBBFunction) {
+            ((ifBBFunction) m_cFunction).setExpansionExecutor(executor);
+        }
+    }
+
     public static ifSystem createGMDHLinear(final ifMatrixData input,
                                             final ifVectorData output,
                                             final ifInfoCallBack cb) {
@@ -15,6 +15,7 @@ import sm.regr.clMatrix;
 import sm.regr.ifMatrixTransform;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
 
 /**
  * User: Oleg
@@ -32,6 +33,17 @@ public class clHarrisAlgorithm extends clBaseAlgorithm {
         setSystemDescription("Harris " + func.toString());
     }
 
+    /**
+     * Sets the executor for the rows and for expanding long samples of the BB
+     * function in parallel and evaluating its GA knot populations.
+     *
+     * @param executor - executor for the algorithm, null - sequential mode
+     */
+    public void setExecutor(final ExecutorService executor) {
+        super.setExecutor(executor);
+        ((ifBBFunction) m_cFunction).setExpansionExecutor(executor);
+    }
+
     public final void identifySystem() throws clCancelException {
         clTracer.straceln("--------------------------Harris Algorithm--------------------------");
         // if we have more than 2 inputs we must build the rows
@@ -44,7 +56,7 @@ public class clHarrisAlgorithm extends clBaseAlgorithm {
         else
         {
             // row building:
-            final ifRowHandling r = createRow(m_dInput, null); /*first row does not have a parent*/
+            final ifRowHandling r = newRow(m_dInput, null); /*first row does not have a parent*/
             m_dNumberOfParamters = r.getNumberOfParamters();
             r.identifyRow();
             finalSystem = r.getLastRow();
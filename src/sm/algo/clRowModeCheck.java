@@ -0,0 +1,94 @@
+package sm.algo;
+
+import sm.base.data.clMatrixData;
+import sm.base.data.clVectorData;
+import sm.base.data.ifMatrixData;
+import sm.base.data.ifVectorData;
+import sm.base.md.clBaseRow;
+import sm.base.md.ifFunction;
+import sm.base.util.clCancelException;
+
+import java.util.Random;
+
+/**
+ * Description: checks that the rows of the moments mode choose the same part.
+ * descriptions as the rows of the eager mode do. A row of each mode is
+ * identified on the same fixed data set and the outputs of its best part.
+ * descriptions (the input of the next row) are compared. Run the main after
+ * changing clBaseRow or clPairMoments; a failed check throws an Error,
+ * otherwise OK is printed.
+ */
+public final class clRowModeCheck {
+    private static final int c_iVars = 8;
+    private static final int c_iSamples = 300;
+    private static final double c_dTolerance = 1e-6;
+
+    private clRowModeCheck() {
+    }
+
+    public static void main(final String[] args) throws clCancelException {
+        final ifMatrixData x = createInput();
+        final ifVectorData y = createOutput(x);
+        check(x, y, new clFunctionLinear(), "linear");
+        check(x, y, new clFunctionParabolic(), "parabolic");
+        System.out.println("OK");
+    }
+
+    private static void check(final ifMatrixData x,
+                              final ifVectorData y,
+                              final ifFunction func,
+                              final String sName) throws clCancelException {
+        final ifMatrixData dEager = identifyRow(x, y, func, false);
+        final ifMatrixData dMoments = identifyRow(x, y, func, true);
+        if (dEager.getRows() != dMoments.getRows()) {
+            throw new Error("clRowModeCheck: " + sName + " rows keep " + dEager.getRows() +
+                            " and " + dMoments.getRows() + " part. desc.");
+        }
+        for (int i = 0; i < dEager.getRows(); i++) {
+            for (int j = 0; j < dEager.getCols(); j++) {
+                final double d = Math.abs(dEager.getValue(i, j) - dMoments.getValue(i, j));
+                if (d > c_dTolerance * (1.0 + Math.abs(dEager.getValue(i, j)))) {
+                    throw new Error("clRowModeCheck: " + sName + " rows differ in part. desc. " + (i + 1));
+                }
+            }
+        }
+    }
+
+    /**
+     * @return - outputs of the best part. desc. of the row [models x samples]
+     */
+    private static ifMatrixData identifyRow(final ifMatrixData x,
+                                            final ifVectorData y,
+                                            final ifFunction func,
+                                            final boolean bMoments) throws clCancelException {
+        clBaseRow.setMomentMode(bMoments);
+        try {
+            final clBaseRow r = new clBaseRow(x, y, func, null, null);
+            r.identifyRow();
+            return r.getNextInput(0);
+        } finally {
+            clBaseRow.setMomentMode(false);
+        }
+    }
+
+    private static ifMatrixData createInput() {
+        final Random r = new Random(7);
+        final ifMatrixData x = new clMatrixData(c_iVars, c_iSamples);
+        for (int i = 0; i < c_iVars; i++) {
+            for (int j = 0; j < c_iSamples; j++) {
+                x.setValue(i, j, r.nextDouble());
+            }
+        }
+        return x;
+    }
+
+    private static ifVectorData createOutput(final ifMatrixData x) {
+        final Random r = new Random(8);
+        final ifVectorData y = new clVectorData(c_iSamples);
+        for (int j = 0; j < c_iSamples; j++) {
+            y.setValue(j, Math.sin(3.0 * x.getValue(0, j)) + x.getValue(1, j) * x.getValue(2, j) +
+                          0.3 * x.getValue(3, j) * x.getValue(3, j) + 0.01 * r.nextGaussian());
+        }
+        return y;
+    }
+}
@@ -5,6 +5,8 @@ import sm.base.data.ifMatrixData;
 import sm.base.md.ifFunction;
 import sm.base.util.clCancelException;
 
+import java.util.concurrent.ExecutorService;
+
 /**
  * User: Oleg
  * Date: Jul 16, 2004
@@ -18,4 +20,9 @@ public interface ifBBFunction extends ifFunction, ifKnotsHandling {
      * polynomial functions based on predetermined knots.
      */
     void buildOnKnots(double[][] vKnots, ifMatrixData md) throws clCancelException;
+
+    /**
+     * Sets the executor which helps to expand long samples, null - the calling thread only.
+     */
+    void setExpansionExecutor(ExecutorService executor);
 }
@@ -2,9 +2,13 @@ package sm.appl;
 
 import sm.algo.*;
 import sm.base.data.ifVectorData;
+import sm.base.md.clBaseAlgorithm;
 import sm.base.md.ifSystem;
 import sm.base.util.clCancelException;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+
 /**
  * User: Oleg
  * Date: Jun 25, 2004
@@ -86,13 +90,32 @@ final class clSystemModeler implements ifSystemModeler {
             if (m_cSystem == null) {
                 throw new clCancelException("The system is empty!");
             }
-            m_cSystem.identifySystem();
+            identifySystem();
         } catch (clCancelException e) {
             m_cCancel = e;
         }
         notify();
     }
 
+    /**
+     * The system is identified on all cores: its rows and BB functions share
+     * a pool which lives as long as this identification only.
+     */
+    private void identifySystem() throws clCancelException {
+        if (!(m_cSystem instanceof clBaseAlgorithm)) {
+            m_cSystem.identifySystem();
+            return;
+        }
+        final ExecutorService executor = new ForkJoinPool();
+        try {
+            ((clBaseAlgorithm) m_cSystem).setExecutor(executor);
+            m_cSystem.identifySystem();
+        } finally {
+            ((clBaseAlgorithm) m_cSystem).setExecutor(null);
+            executor.shutdown();
+        }
+    }
+
     public double getModelEstimation() {
         return m_cSystem.getModelEstimation();
     }
@@ -0,0 +1,168 @@
+package sm.base.data;
+
+import sm.base.util.clMathEx;
+import sm.base.util.clTracer;
+
+/**
+ * Description: this class implements 2D data stored in one contiguous array
+ * with row and column strides: value(i, j) = data[offset + i * rowStride + j * colStride].
+ * Rows, columns and the transposed matrix are available as views on the same
+ * storage without copying. Row vectors are created once per matrix.
+ * NOTE: get2DArrayPtr() has no storage to point to, so it returns a copy.
+ */
+public final class clFlatMatrixData extends clData implements ifMatrixData {
+    private double[] m_dData = null;
+    private final int m_iOffset;
+    private final int m_iRowStride;
+    private final int m_iColStride;
+    private final int m_iRows;
+    private final int m_iCols;
+    private ifVectorData[] m_cRowViews = null; // created on demand
+
+    public clFlatMatrixData(final int iRows, final int iCols) {
+        m_iRows = iRows;
+        m_iCols = iCols;
+        m_iOffset = 0;
+        m_iRowStride = iCols;
+        m_iColStride = 1;
+        allocateData();
+    }
+
+    /**
+     * Creates row-major copy of any matrix data
+     *
+     * @param md - the matrix to copy
+     */
+    public clFlatMatrixData(final ifMatrixData md) {
+        this(md.getRows(), md.getCols());
+        for (int i = 0; i < m_iRows; i++) {
+            for (int j = 0; j < m_iCols; j++) {
+                m_dData[i * m_iRowStride + j] = md.getValue(i, j);
+            }
+        }
+    }
+
+    private clFlatMatrixData(final double[] dData,
+                             final int iOffset,
+                             final int iRows,
+                             final int iCols,
+                             final int iRowStride,
+                             final int iColStride) {
+        m_dData = dData;
+        m_iOffset = iOffset;
+        m_iRows = iRows;
+        m_iCols = iCols;
+        m_iRowStride = iRowStride;
+        m_iColStride = iColStride;
+    }
+
+    /**
+     * @return - transposed matrix on the same storage
+     */
+    public clFlatMatrixData transposeView() {
+        return new clFlatMatrixData(m_dData, m_iOffset, m_iCols, m_iRows, m_iColStride, m_iRowStride);
+    }
+
+    /**
+     * @param i - row index
+     * @return - row i on the same storage
+     */
+    public ifVectorData getRowView(final int i) {
+        return new clStridedVectorData(m_dData, m_iOffset + i * m_iRowStride, m_iCols, m_iColStride);
+    }
+
+    /**
+     * @param j - column index
+     * @return - column j on the same storage
+     */
+    public ifVectorData getColumnView(final int j) {
+        return new clStridedVectorData(m_dData, m_iOffset + j * m_iColStride, m_iRows, m_iRowStride);
+    }
+
+    /**
+     * Gives the storage itself for the sequential kernels.
+     *
+     * @return - the array which contains the data, see getOffset(), getRowStride(), getColStride()
+     */
+    public double[] getFlatArrayPtr() {
+        return m_dData;
+    }
+
+    public int getOffset() {
+        return m_iOffset;
+    }
+
+    public int getRowStride() {
+        return m_iRowStride;
+    }
+
+    public int getColStride() {
+        return m_iColStride;
+    }
+
+    public void setValue(final int i, final int j, final double d) {
+        m_dData[m_iOffset + i * m_iRowStride + j * m_iColStride] = d;
+    }
+
+    public double getValue(final int i, final int j) {
+        return m_dData[m_iOffset + i * m_iRowStride + j * m_iColStride];
+    }
+
+    public ifVectorData[] getVArrayPtr() {
+        if (m_cRowViews == null) {
+            final ifVectorData[] vd = new ifVectorData[m_iRows];
+            for (int i = 0; i < m_iRows; i++) {
+                vd[i] = getRowView(i);
+            }
+            m_cRowViews = vd;
+        }
+        return m_cRowViews;
+    }
+
+    public ifVectorData getVectorPtr(final int i) {
+        return getVArrayPtr()[i];
+    }
+
+    public double[][] get2DArrayPtr() {
+        final double[][] dCopy = new double[m_iRows][m_iCols];
+        for (int i = 0; i < m_iRows; i++) {
+            for (int j = 0; j < m_iCols; j++) {
+                dCopy[i][j] = getValue(i, j);
+            }
+        }
+        return dCopy;
+    }
+
+    public int getRows() {
+        return m_iRows;
+    }
+
+    public int getCols() {
+        return m_iCols;
+    }
+
+    public void normalize(final double leftBound, final double rightBound) {
+        // this one normalizes vectors in each row
+        for (int i = 0; i < m_iRows; i++) {
+            getVectorPtr(i).normalize(leftBound, rightBound);
+        }
+    }
+
+    protected void allocateData() {
+        m_dData = new double[m_iRows * m_iCols];
+    }
+
+    public void dumpData() {
+        for (int i = 0; i < m_iRows; i++) {
+            String s = "";
+            for (int j = 0; j < m_iCols; j++) {
+                s = s + '\t' + clMathEx.formatDouble(getValue(i, j), 4);
+            }
+            clTracer.straceln(s);
+        }
+    }
+
+    public String toString() {
+        return "Flat matrix data handling class " + getClass().getName();
+    }
+}
@@ -0,0 +1,92 @@
+package sm.base.data;
+
+import sm.base.util.clMathEx;
+import sm.base.util.clTracer;
+
+/**
+ * Description: this class implements 1D view on a part of contiguous array:
+ * value(i) = data[offset + i * stride]. Changes are visible in the viewed storage.
+ * NOTE: getArrayPtr() returns a copy and setArrayPtr() copies the values into the view.
+ */
+final class clStridedVectorData extends clData implements ifVectorData {
+    private final double[] m_dData;
+    private final int m_iOffset;
+    private final int m_iDim;
+    private final int m_iStride;
+
+    clStridedVectorData(final double[] dData, final int iOffset, final int iDim, final int iStride) {
+        m_dData = dData;
+        m_iOffset = iOffset;
+        m_iDim = iDim;
+        m_iStride = iStride;
+    }
+
+    public void setArrayPtr(final double[] dData) {
+        for (int i = 0; i < m_iDim; i++) {
+            m_dData[m_iOffset + i * m_iStride] = dData[i];
+        }
+    }
+
+    public void setValue(final int i, final double d) {
+        m_dData[m_iOffset + i * m_iStride] = d;
+    }
+
+    public double[] getArrayPtr() {
+        final double[] dCopy = new double[m_iDim];
+        for (int i = 0; i < m_iDim; i++) {
+            dCopy[i] = m_dData[m_iOffset + i * m_iStride];
+        }
+        return dCopy;
+    }
+
+    public double getValue(final int i) {
+        return m_dData[m_iOffset + i * m_iStride];
+    }
+
+    public int getArraySize() {
+        return m_iDim;
+    }
+
+    public void normalize(final double leftBound, final double rightBound) {
+        if (leftBound >= rightBound) {
+            return;
+        }
+        // first determine the min and max for each column
+        double dMin = getValue(0);
+        double dMax = getValue(0);
+        for (int i = 1; i < m_iDim; i++) {
+            final double d = getValue(i);
+            if (dMin > d) {
+                dMin = d;
+            }
+            if (dMax < d) {
+                dMax = d;
+            }
+        }
+        if (dMax <= dMin) {
+            return;
+        }
+        // normalize:
+        for (int i = 0; i < m_iDim; i++) {
+            // reduce to range [0, 1]
+            double d = (getValue(i) - dMin) / (dMax - dMin);
+            // reduce to required range [leftBound, rightBound]
+            d = (d + leftBound) * (rightBound - leftBound);
+            setValue(i, d);
+        }
+    }
+
+    protected void allocateData() {
+        // view does not own its data
+    }
+
+    public void dumpData() {
+        for (int i = 0; i < m_iDim; i++) {
+            clTracer.straceln(clMathEx.formatDouble(getValue(i), 4));
+        }
+    }
+
+    public String toString() {
+        return "Strided vector data handling class " + getClass().getName();
+    }
+}
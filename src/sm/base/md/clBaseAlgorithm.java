@@ -5,6 +5,8 @@ import sm.base.data.ifVectorData;
 import sm.base.util.clCancelException;
 import sm.base.util.ifInfoCallBack;
 
+import java.util.concurrent.ExecutorService;
+
 /**
  * User: Oleg
  * Date: 26/6/2004
@@ -13,6 +15,8 @@ import sm.base.util.ifInfoCallBack;
  */
 public class clBaseAlgorithm extends clBaseSystem {
     protected final ifFunction m_cFunction;
+    // executor the rows identify their part. desc. on (null - sequential mode)
+    private ExecutorService m_cExecutor = null;
 
     /**
      * Creates the base algorithm for system identification
@@ -37,6 +41,29 @@ public class clBaseAlgorithm extends clBaseSystem {
         return "algorithm";
     }
 
+    /**
+     * Sets the executor (e.g. ForkJoinPool) which is used by the rows created
+     * afterwards. The algorithm does not shut it down, the caller does.
+     *
+     * @param executor - executor for part. desc. fits, null - sequential mode
+     */
+    public void setExecutor(final ExecutorService executor) {
+        m_cExecutor = executor;
+    }
+
+    /**
+     * Creates the row by createRow and sets the executor of the algorithm to it.
+     *
+     * @param input     - row input
+     * @param parentRow - descriptor of the parent row
+     * @return - newly generated row descriptor
+     */
+    protected final ifRowHandling newRow(final ifMatrixData input, final ifRowHandling parentRow) throws clCancelException {
+        final ifRowHandling r = createRow(input, parentRow);
+        r.setRowExecutor(m_cExecutor);
+        return r;
+    }
+
     /**
      * Function creates appropriate row for data handling.
      * This may be overriden to support another rows besides base row
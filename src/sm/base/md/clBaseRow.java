@@ -1,15 +1,19 @@
 package sm.base.md;
 
-import sm.base.data.clMatrixData;
+import sm.base.data.clFlatMatrixData;
 import sm.base.data.clVectorData;
 import sm.base.data.ifMatrixData;
 import sm.base.data.ifVectorData;
 import sm.base.util.clCancelException;
 import sm.base.util.clTracer;
+import sm.base.util.clWorkQueue;
 import sm.base.util.ifInfoCallBack;
-import sm.regr.clMatrix;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.ExecutorService;
 
 /**
  * User: Oleg
@@ -18,13 +22,30 @@ import java.util.Arrays;
  * Description: The class represents the base row of data in any kind of algorithm
  */
 public class clBaseRow extends clBaseSystem implements ifRowHandling {
-    private final ifPartDescriptor[] m_cPartDesc;
+    // the following should be the same for all rows!
+    // whether rows keep only the best part. desc. outputs instead of all part. desc.
+    private static boolean m_sStreamingRows = false;
+    // whether rows of monomial functions are identified from the moments of their inputs
+    private static boolean m_sMomentRows = false;
+    // how many part. desc. may be expanded at once per processor in streaming mode
+    private static final int c_iStreamingWindow = 4;
+
+    private final ifPartDescriptor[] m_cPartDesc; // null in streaming mode
+    private final clPDCandidate[] m_cBestPD;      // null in eager mode
+    private final boolean m_bMomentMode;
+    // executor for parallel identification of part. desc. (null - sequential mode)
+    private ExecutorService m_cRowExecutor = null;
+    private final int[] m_vPairFirst;
+    private final int[] m_vPairSecond;
+    private final ifVectorData[] m_cRowVars;
     private final int m_iNumOfPD;
     private final int m_iNumOfVars;
     private final int m_iNumOfSamples;
     private final ifRowHandling m_cParentRow; // just for debugging multirows!!!
     private final int m_iRowNumber;
     protected final ifFunction m_cPDFunction;
+    // callback for part. desc., it may be called from several threads at once
+    private final ifInfoCallBack m_cPDInfoCallBack;
     // whether to use part. desc. optimization or not
     //private final boolean m_bPartDescOpt;
 
@@ -35,6 +56,7 @@ public class clBaseRow extends clBaseSystem implements ifRowHandling {
                      final ifRowHandling parentRow) throws clCancelException {
         super(dInput, dOutput, cb);
         m_cPDFunction = func;
+        m_cPDInfoCallBack = cb == null ? null : new clSyncInfoCallBack(cb);
         m_cParentRow = parentRow;
         if (m_cParentRow == null) {
             m_iRowNumber = 1;
@@ -45,19 +67,65 @@ public class clBaseRow extends clBaseSystem implements ifRowHandling {
         m_iNumOfVars = m_dInput.getRows();
         m_iNumOfSamples = m_dInput.getCols();
         m_iNumOfPD = m_iNumOfVars * (m_iNumOfVars - 1) >> 1; // c2n(m_iNumOfVars);
-        m_cPartDesc = new clPartDescription[m_iNumOfPD];
+        m_cRowVars = m_dInput.getVArrayPtr();
+        m_vPairFirst = new int[m_iNumOfPD];
+        m_vPairSecond = new int[m_iNumOfPD];
 
-        int j = 0; // creation of PD
+        int j = 0; // enumeration of PD
         for (int i = 0; i < m_iNumOfVars; i++) {
             for (int k = i + 1; k < m_iNumOfVars; k++) {
-                final ifVectorData[] input = new clVectorData[2];
-                input[0] = m_dInput.getVArrayPtr()[i];
-                input[1] = m_dInput.getVArrayPtr()[k];
-                m_cPartDesc[j] = createPartDescription(input);
+                m_vPairFirst[j] = i;
+                m_vPairSecond[j] = k;
                 j += 1;
             }
         }
 
+        m_bMomentMode = m_sMomentRows && m_cPDFunction instanceof ifMonomialFunction;
+        if (m_sStreamingRows || m_bMomentMode) {
+            // the next row never takes more than m_iNumOfVars outputs
+            m_cBestPD = new clPDCandidate[Math.min(m_iNumOfVars, m_iNumOfPD)];
+            m_cPartDesc = null;
+        } else {
+            m_cBestPD = null;
+            m_cPartDesc = new clPartDescription[m_iNumOfPD];
+            for (j = 0; j < m_iNumOfPD; j++) { // creation of PD
+                m_cPartDesc[j] = createPartDescription(getPairInput(j));
+            }
+        }
+    }
+
+    /**
+     * Sets the executor (e.g. ForkJoinPool) which is used to identify
+     * partial descriptions of the row concurrently.
+     *
+     * @param executor - executor for part. desc. fits, null - sequential mode
+     */
+    public void setRowExecutor(final ExecutorService executor) {
+        m_cRowExecutor = executor;
+    }
+
+    /**
+     * Sets the mode for the rows created afterwards. In streaming mode the row
+     * expands, identifies and scores its part. descriptions one pair at a time
+     * and keeps only the outputs of the best ones, so expanded matrices of all
+     * the pairs are never kept in memory at once.
+     *
+     * @param bStreaming - true for streaming mode, false - all part. desc. are built in ctor.
+     */
+    public static void setStreamingMode(final boolean bStreaming) {
+        m_sStreamingRows = bStreaming;
+    }
+
+    /**
+     * Sets the mode for the rows created afterwards. If the row function is
+     * monomial (linear, parabolic) the moments of all the pairs are computed
+     * in one pass over the samples and every part. desc. is fitted from them.
+     * Part. desc. are not created at all, only the outputs of the best ones are built.
+     *
+     * @param bMoments - true for the moments mode
+     */
+    public static void setMomentMode(final boolean bMoments) {
+        m_sMomentRows = bMoments;
     }
 
     public boolean identifyRow() throws clCancelException {
@@ -65,23 +133,29 @@ public class clBaseRow extends clBaseSystem implements ifRowHandling {
         if (m_cInfoCallBack != null) {
             m_cInfoCallBack.infoCallback(m_iRowNumber + " row.");
         }
-        int j = 0;
-        for (int i = 0; i < m_iNumOfVars; i++) {
-            for (int k = i + 1; k < m_iNumOfVars; k++) {
-                if (m_cInfoCallBack != null) {
-                    m_cInfoCallBack.infoCallback(m_iRowNumber + " row: " + (j + 1) + " model.");
-                }
-                m_cPartDesc[j].identifySystem();
-                final double est = m_cPartDesc[j].getModelEstimation();
-                j += 1;
-                clTracer.straceln(j + " model estimation: " + est);
+        final ExecutorService executor = m_iNumOfPD > 1 && isParallelCapable() ? m_cRowExecutor : null;
+        if (m_bMomentMode) {
+            identifyPartDescMoments();
+            // set current subsystem output to the best one
+            m_dEstimatedOutput = m_cBestPD[0].m_cEstimatedOutput;
+            m_dModelFitness = m_cBestPD[0].m_dEstimation;
+        } else if (m_cBestPD != null) {
+            identifyPartDescStreaming(executor);
+            // set current subsystem output to the best one
+            m_dEstimatedOutput = m_cBestPD[0].m_cEstimatedOutput;
+            m_dModelFitness = m_cBestPD[0].m_dEstimation;
+        } else {
+            if (executor != null) {
+                identifyPartDescParallel(executor);
+            } else {
+                identifyPartDescSerial();
             }
+            // sort the array in ascending order
+            Arrays.sort(m_cPartDesc, m_cPartDesc[0]);
+            // set current subsystem output to the best one
+            m_dEstimatedOutput = m_cPartDesc[0].getEstimatedOutput();
+            m_dModelFitness = m_cPartDesc[0].getModelEstimation();
         }
-        // sort the array in ascending order
-        Arrays.sort(m_cPartDesc, m_cPartDesc[0]);
-        // set current subsystem output to the best one
-        m_dEstimatedOutput = m_cPartDesc[0].getEstimatedOutput();
-        m_dModelFitness = m_cPartDesc[0].getModelEstimation();
 
         // compare with the previuos models
         if (m_cParentRow != null && m_dModelFitness > m_cParentRow.getModelEstimation()) {
@@ -91,8 +165,153 @@ public class clBaseRow extends clBaseSystem implements ifRowHandling {
         return true;
     }
 
+    private void identifyPartDescSerial() throws clCancelException {
+        for (int j = 0; j < m_iNumOfPD; j++) {
+            if (m_cInfoCallBack != null) {
+                m_cInfoCallBack.infoCallback(m_iRowNumber + " row: " + (j + 1) + " model.");
+            }
+            m_cPartDesc[j].identifySystem();
+            final double est = m_cPartDesc[j].getModelEstimation();
+            clTracer.straceln((j + 1) + " model estimation: " + est);
+        }
+    }
+
+    /**
+     * Each part. desc. is an independent LSM fit, so all of them are submitted
+     * to the executor at once. The results are stored in their own slots of
+     * m_cPartDesc, so the following (stable) sort gives the same row as the
+     * sequential mode does.
+     *
+     * @param executor - executor to run the fits on
+     * @throws clCancelException - the first failure of any fit
+     */
+    private void identifyPartDescParallel(final ExecutorService executor) throws clCancelException {
+        new clWorkQueue(m_iNumOfPD, "Row identification is interrupted!") {
+            protected void runTask(final int j, final Object cState) throws clCancelException {
+                if (m_cPDInfoCallBack != null) {
+                    m_cPDInfoCallBack.infoCallback(m_iRowNumber + " row: " + (j + 1) + " model.");
+                }
+                m_cPartDesc[j].identifySystem();
+            }
+        }.run(executor);
+        for (int j = 0; j < m_iNumOfPD; j++) {
+            clTracer.straceln((j + 1) + " model estimation: " + m_cPartDesc[j].getModelEstimation());
+        }
+    }
+
+    /**
+     * The part. descriptions are created, identified and scored in windows of
+     * pairs (a single pair if there is no executor). Only the best candidates
+     * survive in the bounded heap, the part. descriptions themselves together
+     * with their expanded matrices are dropped right after scoring.
+     * Candidates are offered in pair order and ties are broken by pair index,
+     * so the result is the same as the sorted array of the eager mode.
+     *
+     * @param executor - executor to run the fits on, null - sequential mode
+     * @throws clCancelException - the first failure of any fit
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private void identifyPartDescStreaming(final ExecutorService executor) throws clCancelException {
+        final int iCapacity = m_cBestPD.length;
+        final PriorityQueue cHeap = new PriorityQueue(iCapacity + 1, new clPDCandidate(-1, 0.0, null));
+        final int iWindow = executor == null ?
+                            1 : c_iStreamingWindow * Runtime.getRuntime().availableProcessors();
+        final clPDCandidate[] vWindow = new clPDCandidate[iWindow];
+        for (int j0 = 0; j0 < m_iNumOfPD; j0 += iWindow) {
+            final int j1 = Math.min(m_iNumOfPD, j0 + iWindow);
+            if (executor == null) {
+                for (int j = j0; j < j1; j++) {
+                    offerCandidate(cHeap, scorePartDescription(j, m_cInfoCallBack));
+                }
+            } else {
+                final int iFirst = j0;
+                new clWorkQueue(j1 - j0, "Row identification is interrupted!") {
+                    protected void runTask(final int i, final Object cState) throws clCancelException {
+                        vWindow[i] = scorePartDescription(iFirst + i, m_cPDInfoCallBack);
+                    }
+                }.run(executor);
+                for (int j = j0; j < j1; j++) {
+                    offerCandidate(cHeap, vWindow[j - j0]);
+                    vWindow[j - j0] = null;
+                }
+            }
+        }
+        // the heap keeps the worst candidate on top
+        for (int i = cHeap.size() - 1; i >= 0; i--) {
+            m_cBestPD[i] = (clPDCandidate) cHeap.poll();
+        }
+    }
+
+    /**
+     * Fits all the part. descriptions from the moments of the row inputs.
+     * Estimated outputs are computed for the best candidates only.
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private void identifyPartDescMoments() {
+        final clPairMoments cMoments = new clPairMoments(m_cRowVars, m_dOutput, m_vPairFirst, m_vPairSecond,
+                                                         ((ifMonomialFunction) m_cPDFunction).getExponents(2),
+                                                         getRateOfTestSamples());
+        final PriorityQueue cHeap = new PriorityQueue(m_cBestPD.length + 1, new clPDCandidate(-1, 0.0, null));
+        for (int j = 0; j < m_iNumOfPD; j++) {
+            if (m_cInfoCallBack != null) {
+                m_cInfoCallBack.infoCallback(m_iRowNumber + " row: " + (j + 1) + " model.");
+            }
+            final double[] vCoefs = new double[cMoments.getNumberOfParamters()];
+            final clPDCandidate c = new clPDCandidate(j, cMoments.fit(j, vCoefs), null);
+            c.m_vCoefs = vCoefs;
+            clTracer.straceln((j + 1) + " model estimation: " + c.m_dEstimation);
+            offerCandidate(cHeap, c);
+        }
+        // the survivors are scored again on the samples and ranked by these scores
+        for (int i = cHeap.size() - 1; i >= 0; i--) {
+            final clPDCandidate c = (clPDCandidate) cHeap.poll();
+            final ifVectorData eo = cMoments.estimateOutput(c.m_iPair, c.m_vCoefs);
+            m_cBestPD[i] = new clPDCandidate(c.m_iPair, cMoments.getVariance(eo), eo);
+        }
+        // the comparator puts the worst candidate first
+        Arrays.sort(m_cBestPD, Collections.reverseOrder(new clPDCandidate(-1, 0.0, null)));
+    }
+
+    private clPDCandidate scorePartDescription(final int iPair, final ifInfoCallBack cb) throws clCancelException {
+        if (cb != null) {
+            cb.infoCallback(m_iRowNumber + " row: " + (iPair + 1) + " model.");
+        }
+        final ifPartDescriptor pd = createPartDescription(getPairInput(iPair));
+        pd.identifySystem();
+        clTracer.straceln((iPair + 1) + " model estimation: " + pd.getModelEstimation());
+        return new clPDCandidate(iPair, pd.getModelEstimation(), pd.getEstimatedOutput());
+    }
+
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    private void offerCandidate(final PriorityQueue cHeap, final clPDCandidate c) {
+        cHeap.add(c);
+        if (cHeap.size() > m_cBestPD.length) {
+            cHeap.poll();
+        }
+    }
+
+    private ifVectorData[] getPairInput(final int iPair) {
+        final ifVectorData[] input = new ifVectorData[2];
+        input[0] = m_cRowVars[m_vPairFirst[iPair]];
+        input[1] = m_cRowVars[m_vPairSecond[iPair]];
+        return input;
+    }
+
+    /**
+     * This one may be overriden by rows which part. descriptions share
+     * some mutable state and therefore can't be identified concurrently.
+     *
+     * @return - true if part. descriptions may be identified in parallel
+     */
+    protected boolean isParallelCapable() {
+        return true;
+    }
 
     public final int getNumberOfParamters() {
+        if (m_cPartDesc == null) {
+            // all part. desc. are built with the same function of a pair
+            return m_cPDFunction.getNumberOfColumns(2) * m_iNumOfPD;
+        }
         int c = 0;
         for (int i = 0; i < m_iNumOfPD; i++) {
             c += m_cPartDesc[i].getNumberOfParamters();
@@ -107,10 +326,21 @@ public class clBaseRow extends clBaseSystem implements ifRowHandling {
      * @return - part description subsystem instance
      */
     protected ifPartDescriptor createPartDescription(ifVectorData[] input) throws clCancelException {
-        return new clPartDescription(input, m_dOutput, m_cPDFunction, m_cInfoCallBack);
+        return new clPartDescription(input, m_dOutput, m_cPDFunction, m_cPDInfoCallBack);
     }
 
     public ifMatrixData getNextInput(final int reduceModels) throws clCancelException {
+        return buildNextInput(reduceModels);
+    }
+
+    /**
+     * Copies the outputs of the best models into one contiguous block,
+     * the rows of the block are the inputs of the next row.
+     *
+     * @param reduceModels - how many models to drop
+     * @return - next input [models x samples]
+     */
+    private clFlatMatrixData buildNextInput(final int reduceModels) throws clCancelException {
         // first we have to choose the set of the best models
         final int iFreedomOfChoice = m_iNumOfVars/*m_iNumOfPD*/ - reduceModels;
 
@@ -118,13 +348,16 @@ public class clBaseRow extends clBaseSystem implements ifRowHandling {
             throw new clCancelException("Can't reduce models count anymore!");
         }
 
-        final ifMatrixData dNextInput = new clMatrixData(iFreedomOfChoice, m_iNumOfSamples);
+        final clFlatMatrixData dNextInput = new clFlatMatrixData(iFreedomOfChoice, m_iNumOfSamples);
+        final double[] dNext = dNextInput.getFlatArrayPtr();
 
         for (int i = 0; i < iFreedomOfChoice; i++) {
-            final ifVectorData pd = m_cPartDesc[i].getEstimatedOutput();
+            final ifVectorData pd = m_cBestPD != null ?
+                                    m_cBestPD[i].m_cEstimatedOutput : m_cPartDesc[i].getEstimatedOutput();
             // copy the row outputs to the next row :
+            final int iBase = i * m_iNumOfSamples;
             for (int j = 0; j < m_iNumOfSamples; j++) {
-                dNextInput.setValue(i, j, pd.getValue(j));
+                dNext[iBase + j] = pd.getValue(j);
             }
         }
         return dNextInput;
@@ -135,7 +368,8 @@ public class clBaseRow extends clBaseSystem implements ifRowHandling {
     }
 
     public ifSystem getLastRow() throws clCancelException {
-        final ifMatrixData dNextInput = (new clMatrix(getNextInput(0))).transpose();
+        // samples x models, the same storage as for the next row
+        final ifMatrixData dNextInput = buildNextInput(0).transposeView();
         /* output & callback parse without changes to the final row */
         final ifSystem finalRow = new clBaseSystem(dNextInput, m_dOutput, m_cInfoCallBack);
         return finalRow;
@@ -144,4 +378,52 @@ public class clBaseRow extends clBaseSystem implements ifRowHandling {
     public String toString() {
         return "Row " + getClass().getName();
     }
+
+    /**
+     * Scored part. description of the streaming mode: only what the next row needs.
+     * Also serves as the heap comparator which puts the worst candidate first.
+     */
+    @SuppressWarnings("rawtypes")
+    private static final class clPDCandidate implements Comparator {
+        private final int m_iPair;
+        private final double m_dEstimation;
+        private ifVectorData m_cEstimatedOutput;
+        private double[] m_vCoefs = null; // coefficients of the moments mode
+
+        private clPDCandidate(final int iPair, final double dEstimation, final ifVectorData cEstimatedOutput) {
+            m_iPair = iPair;
+            m_dEstimation = dEstimation;
+            m_cEstimatedOutput = cEstimatedOutput;
+        }
+
+        public int compare(final Object o1, final Object o2) {
+            final clPDCandidate c1 = (clPDCandidate) o1;
+            final clPDCandidate c2 = (clPDCandidate) o2;
+            if (c1.m_dEstimation > c2.m_dEstimation) {
+                return -1;
+            }
+            if (c1.m_dEstimation < c2.m_dEstimation) {
+                return 1;
+            }
+            return c2.m_iPair - c1.m_iPair;
+        }
+    }
+
+    /**
+     * User callbacks are not expected to be thread safe,
+     * so serialize the calls coming from the parallel part. desc. fits.
+     */
+    private static final class clSyncInfoCallBack implements ifInfoCallBack {
+        private final ifInfoCallBack m_cCallBack;
+
+        private clSyncInfoCallBack(final ifInfoCallBack cb) {
+            m_cCallBack = cb;
+        }
+
+        public boolean infoCallback(final String sInfo) {
+            synchronized (m_cCallBack) {
+                return m_cCallBack.infoCallback(sInfo);
+            }
+        }
+    }
 }
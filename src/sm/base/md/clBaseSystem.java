@@ -1,11 +1,11 @@
 package sm.base.md;
 
+import sm.base.data.clFlatMatrixData;
 import sm.base.data.clMatrixData;
 import sm.base.data.ifMatrixData;
 import sm.base.data.ifVectorData;
 import sm.base.util.clCancelException;
 import sm.base.util.ifInfoCallBack;
-import sm.regr.clMatrix;
 import sm.regr.clRegrLSM;
 import sm.regr.clRegrLSMEx;
 import sm.regr.ifRegression;
@@ -50,6 +50,10 @@ public class clBaseSystem implements ifSystem {
         m_sPercOfTestSamples = dPercOfTestSamples;
     }
 
+    protected final double getRateOfTestSamples() {
+        return m_sPercOfTestSamples;
+    }
+
     public void identifySystem() throws clCancelException {
         if (m_cInfoCallBack != null) {
             m_cInfoCallBack.infoCallback("Start LSM.");
@@ -63,7 +67,7 @@ public class clBaseSystem implements ifSystem {
 
         ls.buildRegression();
         final ifMatrixData eo = ls.getEstimatedOutput();
-        m_dEstimatedOutput = (new clMatrix(eo).transpose()).getVectorPtr(0);
+        m_dEstimatedOutput = new clFlatMatrixData(eo).getColumnView(0);
         m_dModelFitness = ls.getVariance();
         if (m_cInfoCallBack != null) {
             m_cInfoCallBack.infoCallback("Finish LSM.");
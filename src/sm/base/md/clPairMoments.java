@@ -0,0 +1,226 @@
+package sm.base.md;
+
+import sm.base.data.clMatrixData;
+import sm.base.data.clVectorData;
+import sm.base.data.ifVectorData;
+import sm.regr.clCholesky;
+import sm.regr.clMatrix;
+import sm.regr.ifMatrixTransform;
+
+/**
+ * Description: the class keeps the moments sum(xi^a * xk^b) and sum(y * xi^a * xk^b)
+ * for all the pairs of row inputs. For models which columns are monomials of the pair
+ * (see ifMonomialFunction) the normal equations of every pair are assembled
+ * directly from these moments, so the LSM fit of a pair does not depend on
+ * the number of samples.
+ * Learning/test samples are split in the same way as clRegrLSMEx does:
+ * coefficients are estimated on the learning samples, variance - on the full data set.
+ * The variance from the moments is good enough to rank the pairs, but it cancels for
+ * near-exact fits, so such fits and the best pairs of the row are scored on the samples.
+ */
+final class clPairMoments {
+    private final ifVectorData[] m_cVars;
+    private final ifVectorData m_cOutput;
+    private final int[] m_vPairFirst;
+    private final int[] m_vPairSecond;
+    private final int[][] m_vExp;     // exponents of the pair monomials [column][2]
+    private final int m_iCols;
+    private final int m_iDegree;      // max degree of monomials
+    private final int m_iSide;        // moments are stored as [a * m_iSide + b]
+    private final int m_iSamples;
+    private final double[][] m_dLearnX;
+    private final double[][] m_dFullX;
+    private final double[][] m_dLearnY;
+    private final double[][] m_dFullY;
+    private final double m_dFullYY;
+
+    // below this part of y'y the residual from the moments is not trusted
+    private static final double c_dCancellation = 1.0e-10;
+
+    /**
+     * Computes all the moments in one pass over the samples.
+     *
+     * @param vars               - row inputs
+     * @param output             - output vector of the system
+     * @param vPairFirst         - first input of each pair
+     * @param vPairSecond        - second input of each pair
+     * @param vExp               - exponents of the model columns for two arguments
+     * @param dPercOfTestSamples - rate of test samples (0 - learn on the full data set)
+     */
+    clPairMoments(final ifVectorData[] vars,
+                  final ifVectorData output,
+                  final int[] vPairFirst,
+                  final int[] vPairSecond,
+                  final int[][] vExp,
+                  final double dPercOfTestSamples) {
+        m_cVars = vars;
+        m_cOutput = output;
+        m_vPairFirst = vPairFirst;
+        m_vPairSecond = vPairSecond;
+        m_vExp = vExp;
+        m_iCols = vExp.length;
+        int iDegree = 0;
+        for (int c = 0; c < m_iCols; c++) {
+            iDegree = Math.max(iDegree, vExp[c][0] + vExp[c][1]);
+        }
+        m_iDegree = iDegree;
+        m_iSide = 2 * m_iDegree + 1;
+        m_iSamples = output.getArraySize();
+
+        final int iNumOfPairs = vPairFirst.length;
+        m_dLearnX = new double[iNumOfPairs][m_iSide * m_iSide];
+        m_dFullX = new double[iNumOfPairs][m_iSide * m_iSide];
+        m_dLearnY = new double[iNumOfPairs][m_iSide * m_iSide];
+        m_dFullY = new double[iNumOfPairs][m_iSide * m_iSide];
+
+        final int iNumOfTestSamples = (int) ((double) m_iSamples * dPercOfTestSamples);
+        final int iNumOfLearnSamples = m_iSamples - iNumOfTestSamples;
+        // the full moments hold the test ones during the pass
+        accumulate(0, iNumOfLearnSamples, m_dLearnX, m_dLearnY);
+        accumulate(iNumOfLearnSamples, m_iSamples, m_dFullX, m_dFullY);
+        for (int j = 0; j < iNumOfPairs; j++) {
+            for (int m = 0; m < m_iSide * m_iSide; m++) {
+                m_dFullX[j][m] += m_dLearnX[j][m];
+                m_dFullY[j][m] += m_dLearnY[j][m];
+            }
+        }
+        double dYY = 0.0;
+        for (int s = 0; s < m_iSamples; s++) {
+            dYY += m_cOutput.getValue(s) * m_cOutput.getValue(s);
+        }
+        m_dFullYY = dYY;
+    }
+
+    private void accumulate(final int iFrom, final int iTo, final double[][] dX, final double[][] dY) {
+        final int iMaxX = 2 * m_iDegree;
+        final double[][] vPow = new double[m_cVars.length][iMaxX + 1];
+        for (int s = iFrom; s < iTo; s++) {
+            for (int v = 0; v < m_cVars.length; v++) {
+                final double[] p = vPow[v];
+                final double x = m_cVars[v].getValue(s);
+                p[0] = 1.0;
+                for (int a = 1; a <= iMaxX; a++) {
+                    p[a] = p[a - 1] * x;
+                }
+            }
+            final double y = m_cOutput.getValue(s);
+            for (int j = 0; j < m_vPairFirst.length; j++) {
+                final double[] pi = vPow[m_vPairFirst[j]];
+                final double[] pk = vPow[m_vPairSecond[j]];
+                final double[] mx = dX[j];
+                final double[] my = dY[j];
+                for (int a = 0; a <= iMaxX; a++) {
+                    final int row = a * m_iSide;
+                    final double pa = pi[a];
+                    final double ypa = y * pa;
+                    for (int b = 0; b <= iMaxX - a; b++) {
+                        mx[row + b] += pa * pk[b];
+                        if (a + b <= m_iDegree) {
+                            my[row + b] += ypa * pk[b];
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    int getNumberOfParamters() {
+        return m_iCols;
+    }
+
+    /**
+     * Solves the normal equations of the pair assembled from the learning moments.
+     *
+     * @param iPair  - pair index
+     * @param vCoefs - return parameter, coefficients of the pair model
+     * @return - mean square error of the model on the full data set, for ranking only
+     */
+    double fit(final int iPair, final double[] vCoefs) {
+        final double[] mx = m_dLearnX[iPair];
+        final double[] my = m_dLearnY[iPair];
+        final double[][] dInform = new double[m_iCols][m_iCols];
+        final double[] dRight = new double[m_iCols];
+        for (int c = 0; c < m_iCols; c++) {
+            for (int d = 0; d < m_iCols; d++) {
+                dInform[c][d] = mx[index(c, d)];
+            }
+            dRight[c] = my[m_vExp[c][0] * m_iSide + m_vExp[c][1]];
+        }
+        final clCholesky cFactor = new clCholesky(dInform);
+        if (cFactor.isSPD()) {
+            cFactor.solve(dRight, vCoefs);
+        } else { // there is no regressors matrix for QR here, so invert as is
+            final ifMatrixTransform xPr = new clMatrix(new clMatrixData(dInform));
+            xPr.invert(); // get cov. matrix
+            for (int c = 0; c < m_iCols; c++) {
+                double sum = 0.0;
+                for (int d = 0; d < m_iCols; d++) {
+                    sum += dInform[c][d] * dRight[d];
+                }
+                vCoefs[c] = sum;
+            }
+        }
+        // sum((y - Xa)^2) = y'y - 2a'X'y + a'X'Xa on the full data set
+        final double[] fx = m_dFullX[iPair];
+        final double[] fy = m_dFullY[iPair];
+        double dNorm = m_dFullYY;
+        for (int c = 0; c < m_iCols; c++) {
+            double sum = 0.0;
+            for (int d = 0; d < m_iCols; d++) {
+                sum += fx[index(c, d)] * vCoefs[d];
+            }
+            dNorm += vCoefs[c] * (sum - 2.0 * fy[m_vExp[c][0] * m_iSide + m_vExp[c][1]]);
+        }
+        if (dNorm < c_dCancellation * m_dFullYY) {
+            return getVariance(estimateOutput(iPair, vCoefs));
+        }
+        return dNorm / (double) m_iSamples;
+    }
+
+    /**
+     * @param eo - estimated output of a pair model on the full data set
+     * @return - mean square error of the model computed on the samples
+     */
+    double getVariance(final ifVectorData eo) {
+        double dNorm = 0.0;
+        for (int s = 0; s < m_iSamples; s++) {
+            final double d = m_cOutput.getValue(s) - eo.getValue(s);
+            dNorm += d * d;
+        }
+        return dNorm / (double) m_iSamples;
+    }
+
+    /**
+     * @param iPair  - pair index
+     * @param vCoefs - coefficients of the pair model
+     * @return - estimated output of the pair model on the full data set
+     */
+    ifVectorData estimateOutput(final int iPair, final double[] vCoefs) {
+        final ifVectorData eo = new clVectorData(m_iSamples);
+        final ifVectorData xi = m_cVars[m_vPairFirst[iPair]];
+        final ifVectorData xk = m_cVars[m_vPairSecond[iPair]];
+        final double[] pi = new double[m_iDegree + 1];
+        final double[] pk = new double[m_iDegree + 1];
+        pi[0] = pk[0] = 1.0;
+        for (int s = 0; s < m_iSamples; s++) {
+            for (int a = 1; a <= m_iDegree; a++) {
+                pi[a] = pi[a - 1] * xi.getValue(s);
+                pk[a] = pk[a - 1] * xk.getValue(s);
+            }
+            double sum = 0.0;
+            for (int c = 0; c < m_iCols; c++) {
+                sum += pi[m_vExp[c][0]] * pk[m_vExp[c][1]] * vCoefs[c];
+            }
+            eo.setValue(s, sum);
+        }
+        return eo;
+    }
+
+    private int index(final int c, final int d) {
+        return (m_vExp[c][0] + m_vExp[d][0]) * m_iSide + m_vExp[c][1] + m_vExp[d][1];
+    }
+
+    public String toString() {
+        return "Pair moments " + getClass().getName();
+    }
+}
@@ -14,4 +14,9 @@ import sm.base.util.clCancelException;
 public interface ifFunction {
     ifMatrixData buildMatrix(ifVectorData[] vd) throws clCancelException;
 
+    /**
+     * @param iArgs - number of input vectors
+     * @return - number of columns of the matrix built by buildMatrix for iArgs vectors
+     */
+    int getNumberOfColumns(int iArgs);
 }
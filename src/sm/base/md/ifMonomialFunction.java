@@ -0,0 +1,16 @@
+package sm.base.md;
+
+/**
+ * Description: this interface describes the expansion functions which columns
+ * are monomials of the input vectors, e.g. linear and parabolic views of model.
+ * Such models may be identified directly from the moments of the inputs
+ * without building the expanded matrix.
+ */
+public interface ifMonomialFunction extends ifFunction {
+    /**
+     * @param iArgs - number of input vectors
+     * @return - exponents[column][argument] of the expanded matrix columns,
+     *         in the same order as buildMatrix creates them
+     */
+    int[][] getExponents(int iArgs);
+}
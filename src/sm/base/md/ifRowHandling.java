@@ -3,6 +3,8 @@ package sm.base.md;
 import sm.base.data.ifMatrixData;
 import sm.base.util.clCancelException;
 
+import java.util.concurrent.ExecutorService;
+
 /**
  * User: Oleg
  * Date: 19/6/2004
@@ -18,5 +20,7 @@ public interface ifRowHandling extends ifSystem {
 
     int getRowNumber();
 
+    void setRowExecutor(ExecutorService executor);
+
     ifSystem getLastRow() throws clCancelException;
 }
@@ -0,0 +1,150 @@
+package sm.base.util;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Description: a set of independent tasks shared by the calling thread and a
+ * few helpers of an executor. Every worker takes the next task until there are
+ * no more of them; the calling thread waits only for the tasks taken by the
+ * helpers, so the executor may be busy (or even run the caller itself) without
+ * a deadlock. If the executor rejects a helper its tasks are left for the others.
+ * The first failure of any task stops the tasks which are not started yet and
+ * is rethrown to the caller.
+ */
+public abstract class clWorkQueue {
+    private final int m_iTasks;
+    private final String m_sInterrupted;
+    private final AtomicInteger m_cNextTask = new AtomicInteger(0);
+    // the members below are guarded by this
+    private int m_iFinishedTasks = 0;
+    private Exception m_cError = null;
+    private volatile boolean m_bStop = false;
+
+    /**
+     * @param iTasks       - number of tasks
+     * @param sInterrupted - message of the exception thrown if the caller is interrupted
+     */
+    protected clWorkQueue(final int iTasks, final String sInterrupted) {
+        m_iTasks = iTasks;
+        m_sInterrupted = sInterrupted;
+    }
+
+    /**
+     * Does one task, may be called concurrently for different tasks.
+     *
+     * @param iTask  - task index
+     * @param cState - state of the worker, see createState
+     * @throws clCancelException - the task failed, the queue stops
+     */
+    protected abstract void runTask(int iTask, Object cState) throws clCancelException;
+
+    /**
+     * This one may be overriden to give every worker its own state (buffers,
+     * not thread-safe helpers). It is called on the calling thread.
+     *
+     * @return - state of one more worker
+     * @throws clCancelException - if the state can't be created
+     */
+    protected Object createState() throws clCancelException {
+        return null;
+    }
+
+    public final int getNumberOfTasks() {
+        return m_iTasks;
+    }
+
+    /**
+     * Long tasks may check it to give up early after a failure.
+     *
+     * @return - true if some task failed
+     */
+    protected final boolean isStopped() {
+        return m_bStop;
+    }
+
+    /**
+     * Stops the queue, the first failure is rethrown by run.
+     *
+     * @param e - clCancelException or RuntimeException
+     */
+    protected final synchronized void fail(final Exception e) {
+        if (m_cError == null) {
+            m_cError = e;
+        }
+        m_bStop = true;
+    }
+
+    /**
+     * Runs all the tasks on the calling thread and on up to one helper per
+     * processor (less one for the caller) of the executor.
+     *
+     * @param executor - executor for the helpers, null - the calling thread only
+     * @throws clCancelException - the first failure of any task or interruption of the caller
+     */
+    public final void run(final ExecutorService executor) throws clCancelException {
+        final int iHelpers = executor == null ?
+                             0 : Math.min(Runtime.getRuntime().availableProcessors(), m_iTasks) - 1;
+        try {
+            for (int i = 0; i < iHelpers; i++) {
+                final Object cState = createState();
+                executor.execute(new Runnable() {
+                    public void run() {
+                        work(cState);
+                    }
+                });
+            }
+        } catch (RejectedExecutionException e) {
+            // the rest of the tasks are left for the calling thread
+        } catch (clCancelException e) {
+            fail(e);
+        }
+        if (!m_bStop) {
+            try {
+                work(createState());
+            } catch (clCancelException e) {
+                fail(e);
+            }
+        }
+        await();
+    }
+
+    private void work(final Object cState) {
+        int iTask;
+        while ((iTask = m_cNextTask.getAndIncrement()) < m_iTasks) {
+            try {
+                if (!m_bStop) {
+                    runTask(iTask, cState);
+                }
+            } catch (clCancelException e) {
+                fail(e);
+            } catch (RuntimeException e) {
+                fail(e);
+            } finally {
+                synchronized (this) {
+                    m_iFinishedTasks++;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    private synchronized void await() throws clCancelException {
+        while (m_iFinishedTasks < Math.min(m_cNextTask.get(), m_iTasks)) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                m_bStop = true;
+                throw new clCancelException(m_sInterrupted);
+            }
+        }
+        if (m_cError instanceof clCancelException) {
+            throw (clCancelException) m_cError;
+        }
+        if (m_cError != null) {
+            throw (RuntimeException) m_cError;
+        }
+    }
+}
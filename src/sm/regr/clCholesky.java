@@ -0,0 +1,127 @@
+package sm.regr;
+
+/**
+ * Description: this class implements Cholesky factorization A = L*L' of symmetric
+ * positive definite matrix (e.g. information matrix X'X).
+ * Systems are solved by forward and back substitution without forming the inverse,
+ * trace and determinant of the inverse (covariance) matrix are taken from the factor.
+ */
+public final class clCholesky {
+    private final double[][] m_dL;
+    private final int m_iSize;
+    private final boolean m_bSPD;
+
+    /**
+     * @param dA - symmetric matrix, only its lower triangle is used, it is not changed
+     */
+    public clCholesky(final double[][] dA) {
+        m_iSize = dA.length;
+        m_dL = new double[m_iSize][m_iSize];
+        boolean bSPD = true;
+        for (int j = 0; j < m_iSize && bSPD; j++) {
+            final double[] lj = m_dL[j];
+            double d = dA[j][j];
+            for (int k = 0; k < j; k++) {
+                d -= lj[k] * lj[k];
+            }
+            if (d <= 0.0 || Double.isNaN(d)) {
+                bSPD = false;
+                break;
+            }
+            lj[j] = Math.sqrt(d);
+            for (int i = j + 1; i < m_iSize; i++) {
+                final double[] li = m_dL[i];
+                double s = dA[i][j];
+                for (int k = 0; k < j; k++) {
+                    s -= li[k] * lj[k];
+                }
+                li[j] = s / lj[j];
+            }
+        }
+        m_bSPD = bSPD;
+    }
+
+    /**
+     * @return - false if the matrix is not positive definite, the factor is unusable then
+     */
+    public boolean isSPD() {
+        return m_bSPD;
+    }
+
+    /**
+     * @return - rough estimation of the condition number (max(Lii)/min(Lii))^2
+     */
+    public double getConditionEstimate() {
+        if (!m_bSPD) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double dMin = m_dL[0][0];
+        double dMax = m_dL[0][0];
+        for (int i = 1; i < m_iSize; i++) {
+            dMin = Math.min(dMin, m_dL[i][i]);
+            dMax = Math.max(dMax, m_dL[i][i]);
+        }
+        return (dMax / dMin) * (dMax / dMin);
+    }
+
+    /**
+     * Solves A*x = b.
+     *
+     * @param b - right part
+     * @param x - return parameter, solution (may be the same array as b)
+     */
+    public void solve(final double[] b, final double[] x) {
+        // L*z = b
+        for (int i = 0; i < m_iSize; i++) {
+            final double[] li = m_dL[i];
+            double s = b[i];
+            for (int k = 0; k < i; k++) {
+                s -= li[k] * x[k];
+            }
+            x[i] = s / li[i];
+        }
+        // L'*x = z
+        for (int i = m_iSize - 1; i >= 0; i--) {
+            double s = x[i];
+            for (int k = i + 1; k < m_iSize; k++) {
+                s -= m_dL[k][i] * x[k];
+            }
+            x[i] = s / m_dL[i][i];
+        }
+    }
+
+    /**
+     * @return - trace of the inverse matrix: tr(inv(A)) = ||inv(L)||^2 (Frobenius norm)
+     */
+    public double inverseTrace() {
+        double dTrace = 0.0;
+        final double[] z = new double[m_iSize];
+        for (int j = 0; j < m_iSize; j++) { // j-th column of inv(L)
+            for (int i = j; i < m_iSize; i++) {
+                final double[] li = m_dL[i];
+                double s = i == j ? 1.0 : 0.0;
+                for (int k = j; k < i; k++) {
+                    s -= li[k] * z[k];
+                }
+                z[i] = s / li[i];
+                dTrace += z[i] * z[i];
+            }
+        }
+        return dTrace;
+    }
+
+    /**
+     * @return - determinant of the inverse matrix: 1 / prod(Lii)^2
+     */
+    public double inverseAbsDet() {
+        double dDet = 1.0;
+        for (int i = 0; i < m_iSize; i++) {
+            dDet /= m_dL[i][i] * m_dL[i][i];
+        }
+        return dDet;
+    }
+
+    public String toString() {
+        return "Cholesky factorization " + getClass().getName();
+    }
+}
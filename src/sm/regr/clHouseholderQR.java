@@ -0,0 +1,170 @@
+package sm.regr;
+
+/**
+ * Description: this class implements Householder QR factorization X = Q*R of
+ * the regressors matrix (rows - samples, cols - regressors).
+ * It is used for least squares when the information matrix X'X is ill-conditioned:
+ * the condition number of R is the square root of the one of X'X.
+ * Dependent regressors (negligible diagonal of R) get zero coefficients.
+ */
+public final class clHouseholderQR {
+    private static final double c_dRankTolerance = 1e-12;
+    private final double[][] m_dQR; // R above the diagonal, Householder vectors below
+    private final double[] m_dRDiag;
+    private final int m_iRows;
+    private final int m_iCols;
+    private final boolean[] m_bDependent;
+
+    /**
+     * @param dX - regressors matrix, it is not changed
+     */
+    public clHouseholderQR(final double[][] dX) {
+        m_iRows = dX.length;
+        m_iCols = dX[0].length;
+        m_dQR = new double[m_iRows][];
+        for (int i = 0; i < m_iRows; i++) {
+            m_dQR[i] = dX[i].clone();
+        }
+        m_dRDiag = new double[m_iCols];
+        final int n = Math.min(m_iRows, m_iCols);
+        for (int k = 0; k < n; k++) {
+            double nrm = 0.0;
+            for (int i = k; i < m_iRows; i++) {
+                nrm = hypot(nrm, m_dQR[i][k]);
+            }
+            if (nrm != 0.0) {
+                if (m_dQR[k][k] < 0) {
+                    nrm = -nrm;
+                }
+                for (int i = k; i < m_iRows; i++) {
+                    m_dQR[i][k] /= nrm;
+                }
+                m_dQR[k][k] += 1.0;
+                // apply transformation to remaining columns
+                for (int j = k + 1; j < m_iCols; j++) {
+                    double s = 0.0;
+                    for (int i = k; i < m_iRows; i++) {
+                        s += m_dQR[i][k] * m_dQR[i][j];
+                    }
+                    s = -s / m_dQR[k][k];
+                    for (int i = k; i < m_iRows; i++) {
+                        m_dQR[i][j] += s * m_dQR[i][k];
+                    }
+                }
+            }
+            m_dRDiag[k] = -nrm;
+        }
+        double dMax = 0.0;
+        for (int k = 0; k < n; k++) {
+            dMax = Math.max(dMax, Math.abs(m_dRDiag[k]));
+        }
+        m_bDependent = new boolean[m_iCols];
+        for (int k = 0; k < m_iCols; k++) {
+            m_bDependent[k] = k >= n || Math.abs(m_dRDiag[k]) <= c_dRankTolerance * dMax;
+        }
+    }
+
+    private static double hypot(final double a, final double b) {
+        final double aa = Math.abs(a);
+        final double ab = Math.abs(b);
+        if (aa > ab) {
+            final double r = ab / aa;
+            return aa * Math.sqrt(1.0 + r * r);
+        } else if (ab != 0.0) {
+            final double r = aa / ab;
+            return ab * Math.sqrt(1.0 + r * r);
+        }
+        return 0.0;
+    }
+
+    /**
+     * @return - true if all the regressors are linearly independent
+     */
+    public boolean isFullRank() {
+        for (int k = 0; k < m_iCols; k++) {
+            if (m_bDependent[k]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Least squares solution of X*a = y.
+     *
+     * @param y - right part (samples), it is not changed
+     * @param a - return parameter, coefficients
+     */
+    public void solve(final double[] y, final double[] a) {
+        final double[] z = y.clone();
+        final int n = Math.min(m_iRows, m_iCols);
+        // z = Q'*y
+        for (int k = 0; k < n; k++) {
+            if (m_dQR[k][k] == 0.0) {
+                continue;
+            }
+            double s = 0.0;
+            for (int i = k; i < m_iRows; i++) {
+                s += m_dQR[i][k] * z[i];
+            }
+            s = -s / m_dQR[k][k];
+            for (int i = k; i < m_iRows; i++) {
+                z[i] += s * m_dQR[i][k];
+            }
+        }
+        // R*a = z
+        for (int k = m_iCols - 1; k >= 0; k--) {
+            if (m_bDependent[k]) {
+                a[k] = 0.0;
+                continue;
+            }
+            double s = z[k];
+            for (int j = k + 1; j < m_iCols; j++) {
+                s -= getR(k, j) * a[j];
+            }
+            a[k] = s / m_dRDiag[k];
+        }
+    }
+
+    private double getR(final int i, final int j) {
+        return i == j ? m_dRDiag[i] : m_dQR[i][j];
+    }
+
+    /**
+     * @return - trace of covariance matrix inv(X'X) = inv(R)*inv(R)': ||inv(R)||^2 (Frobenius norm),
+     *         dependent regressors are left out
+     */
+    public double inverseTrace() {
+        double dTrace = 0.0;
+        final double[] z = new double[m_iCols];
+        for (int j = 0; j < m_iCols; j++) { // j-th column of inv(R)
+            for (int i = j; i >= 0; i--) {
+                double s = i == j ? 1.0 : 0.0;
+                for (int k = i + 1; k <= j; k++) {
+                    s -= getR(i, k) * z[k];
+                }
+                z[i] = m_bDependent[i] ? 0.0 : s / m_dRDiag[i];
+                dTrace += z[i] * z[i];
+            }
+        }
+        return dTrace;
+    }
+
+    /**
+     * @return - determinant of covariance matrix inv(X'X): 1 / prod(Rii)^2,
+     *         dependent regressors are left out as in inverseTrace
+     */
+    public double inverseAbsDet() {
+        double dDet = 1.0;
+        for (int k = 0; k < m_iCols; k++) {
+            if (!m_bDependent[k]) {
+                dDet /= m_dRDiag[k] * m_dRDiag[k];
+            }
+        }
+        return dDet;
+    }
+
+    public String toString() {
+        return "Householder QR factorization " + getClass().getName();
+    }
+}
@@ -11,6 +11,7 @@ import sm.base.data.ifMatrixData;
  */
 public final class clMatrix extends clMatrixData implements ifMatrixTransform {
     private static final boolean m_bDebug = false;
+    private static final int c_iBlockSize = 64; // block size of the product
 
     /**
      * @param md - initializing matrice with Matrix Data
@@ -46,16 +47,79 @@ public final class clMatrix extends clMatrixData implements ifMatrixTransform {
     }
 
     public ifMatrixTransform product(final ifMatrixTransform right) {
-        final ifMatrixTransform pr = new clMatrix(getRows(), right.getCols());
+        final int iRows = getRows();
+        final int iCols = right.getCols();
+        final int iInner = getCols();
+        final ifMatrixTransform pr = new clMatrix(iRows, iCols);
         final double[][] dl = get2DArrayPtr();
         final double[][] dr = right.get2DArrayPtr();
-        for (int i = 0; i < pr.getRows(); i++) {
-            for (int j = 0; j < pr.getCols(); j++) {
-                double sum = 0.0;
-                for (int k = 0; k < getCols(); k++) {
-                    sum += dl[i][k] * dr[k][j];
+        final double[][] dp = pr.get2DArrayPtr();
+        // blocked i-k-j order: rows of right and result are read sequentially,
+        // each sum is still accumulated in increasing k order
+        for (int i0 = 0; i0 < iRows; i0 += c_iBlockSize) {
+            final int i1 = Math.min(iRows, i0 + c_iBlockSize);
+            for (int k0 = 0; k0 < iInner; k0 += c_iBlockSize) {
+                final int k1 = Math.min(iInner, k0 + c_iBlockSize);
+                for (int j0 = 0; j0 < iCols; j0 += c_iBlockSize) {
+                    final int j1 = Math.min(iCols, j0 + c_iBlockSize);
+                    for (int i = i0; i < i1; i++) {
+                        final double[] li = dl[i];
+                        final double[] pi = dp[i];
+                        for (int k = k0; k < k1; k++) {
+                            final double a = li[k];
+                            final double[] rk = dr[k];
+                            for (int j = j0; j < j1; j++) {
+                                pi[j] += a * rk[j];
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return pr;
+    }
+
+    public ifMatrixTransform transposeProduct(final ifMatrixTransform right) {
+        final int iCols = getCols();
+        final int iRightCols = right.getCols();
+        final ifMatrixTransform pr = new clMatrix(iCols, iRightCols);
+        final double[][] dl = get2DArrayPtr();
+        final double[][] dr = right.get2DArrayPtr();
+        final double[][] dp = pr.get2DArrayPtr();
+        // both matrices are read row by row (sample by sample)
+        for (int k = 0; k < getRows(); k++) {
+            final double[] lk = dl[k];
+            final double[] rk = dr[k];
+            for (int i = 0; i < iCols; i++) {
+                final double a = lk[i];
+                final double[] pi = dp[i];
+                for (int j = 0; j < iRightCols; j++) {
+                    pi[j] += a * rk[j];
                 }
-                pr.setValue(i, j, sum);
+            }
+        }
+        return pr;
+    }
+
+    public ifMatrixTransform gram() {
+        final int iCols = getCols();
+        final ifMatrixTransform pr = new clMatrix(iCols, iCols);
+        final double[][] dl = get2DArrayPtr();
+        final double[][] dp = pr.get2DArrayPtr();
+        // only lower triangle is accumulated, the matrix is read row by row
+        for (int k = 0; k < getRows(); k++) {
+            final double[] lk = dl[k];
+            for (int i = 0; i < iCols; i++) {
+                final double a = lk[i];
+                final double[] pi = dp[i];
+                for (int j = 0; j <= i; j++) {
+                    pi[j] += a * lk[j];
+                }
+            }
+        }
+        for (int i = 0; i < iCols; i++) {
+            for (int j = i + 1; j < iCols; j++) {
+                dp[i][j] = dp[j][i];
             }
         }
         return pr;
@@ -158,8 +222,7 @@ public final class clMatrix extends clMatrixData implements ifMatrixTransform {
     }
 
     public ifMatrixTransform getCovariance() {
-        final ifMatrixTransform xTr = transpose();
-        final ifMatrixTransform xPr = xTr.product(this); // get inform. matrix
+        final ifMatrixTransform xPr = gram(); // get inform. matrix
         if (m_bDebug) {
             xPr.dumpData();
         }
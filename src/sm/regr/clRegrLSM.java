@@ -1,5 +1,6 @@
 package sm.regr;
 
+import sm.base.data.clMatrixData;
 import sm.base.data.ifMatrixData;
 import sm.base.pm.clPlain2DTwinPort;
 import sm.base.pm.ifPortHandler;
@@ -21,6 +22,11 @@ public class clRegrLSM implements ifRegression {
     ifMatrixTransform m_cYEstOut = null;
     ifMatrixTransform m_cXRes = null;
     double m_dVariance = 0.0;
+    private double m_dCovTrace = 0.0;
+    private double m_dCovAbsDet = 0.0;
+    private int m_iSolver = c_iCholesky;
+    // X'X with larger condition number is solved by QR
+    private static final double c_dMaxCondition = 1e10;
 
     protected clRegrLSM() {
     }
@@ -36,6 +42,18 @@ public class clRegrLSM implements ifRegression {
         m_cYMatrix = out;
     }
 
+    public final void setSolver(final int iSolver) {
+        m_iSolver = iSolver;
+    }
+
+    public final double getCovarianceTrace() {
+        return m_dCovTrace;
+    }
+
+    public final double getCovarianceAbsDet() {
+        return m_dCovAbsDet;
+    }
+
     public final ifMatrixData getRegressors() {
         return m_cXRes;
     }
@@ -67,22 +85,16 @@ public class clRegrLSM implements ifRegression {
         if (m_cXMatrix.getRows() < m_cXMatrix.getCols()) {
             clTracer.straceln("Number of regressors is more then data samples!!!");
         }
-        final ifMatrixTransform xTr = m_cXMatrix.transpose();
-        final ifMatrixTransform xPr = xTr.product(m_cXMatrix); // get inform. matrix
-        if (m_bDebug) {
-            xPr.dumpData();
+        if (m_iSolver == c_iInversion) {
+            buildByInversion();
+        } else {
+            buildByFactorization();
         }
-        xPr.invert(); // get cov. matrix
-        if (m_bDebug) {
-            xPr.dumpData();
-        } // do not use here getCovariance due to following use of transp. matrice
         if (true/*m_bDebug*/) {
             // show cov. trace and det here just for debugging:
-            clTracer.straceln("Covariance trace:" + clMathEx.formatDouble(xPr.trace()));
-            clTracer.straceln("Covariance determinant:" + clMathEx.formatDouble(xPr.absdet()));
+            clTracer.straceln("Covariance trace:" + clMathEx.formatDouble(m_dCovTrace));
+            clTracer.straceln("Covariance determinant:" + clMathEx.formatDouble(m_dCovAbsDet));
         }
-        final ifMatrixTransform yPr = xTr.product(m_cYMatrix);
-        m_cXRes = xPr.product(yPr);
         if (m_bDebug) {
             clTracer.straceln("Coefficients:");
         }
@@ -92,6 +104,72 @@ public class clRegrLSM implements ifRegression {
         estimateOutput();
     }
 
+    /**
+     * Solves the normal equations by factorization of X'X (Cholesky) or X (QR),
+     * the covariance matrix is never formed.
+     */
+    private void buildByFactorization() {
+        final int iCols = m_cXMatrix.getCols();
+        final int iOutCols = m_cYMatrix.getCols();
+        final double[][] dRes = new double[iCols][iOutCols];
+        final double[] vCoefs = new double[iCols];
+        if (m_iSolver == c_iCholesky) {
+            final ifMatrixTransform xPr = m_cXMatrix.gram(); // get inform. matrix
+            final clCholesky cFactor = new clCholesky(xPr.get2DArrayPtr());
+            if (cFactor.isSPD() && cFactor.getConditionEstimate() < c_dMaxCondition) {
+                final ifMatrixTransform yPr = m_cXMatrix.transposeProduct(m_cYMatrix);
+                for (int c = 0; c < iOutCols; c++) {
+                    for (int i = 0; i < iCols; i++) {
+                        vCoefs[i] = yPr.getValue(i, c);
+                    }
+                    cFactor.solve(vCoefs, vCoefs);
+                    for (int i = 0; i < iCols; i++) {
+                        dRes[i][c] = vCoefs[i];
+                    }
+                }
+                m_dCovTrace = cFactor.inverseTrace();
+                m_dCovAbsDet = cFactor.inverseAbsDet();
+                m_cXRes = new clMatrix(new clMatrixData(dRes));
+                return;
+            }
+            if (m_bDebug) {
+                clTracer.straceln("Ill-conditioned information matrix, QR is used.");
+            }
+        }
+        final clHouseholderQR cFactor = new clHouseholderQR(m_cXMatrix.get2DArrayPtr());
+        final double[] vOut = new double[m_cYMatrix.getRows()];
+        for (int c = 0; c < iOutCols; c++) {
+            for (int i = 0; i < vOut.length; i++) {
+                vOut[i] = m_cYMatrix.getValue(i, c);
+            }
+            cFactor.solve(vOut, vCoefs);
+            for (int i = 0; i < iCols; i++) {
+                dRes[i][c] = vCoefs[i];
+            }
+        }
+        m_dCovTrace = cFactor.inverseTrace();
+        m_dCovAbsDet = cFactor.inverseAbsDet();
+        m_cXRes = new clMatrix(new clMatrixData(dRes));
+    }
+
+    /**
+     * Solves the normal equations by explicit inversion of X'X.
+     */
+    private void buildByInversion() {
+        final ifMatrixTransform xPr = m_cXMatrix.gram(); // get inform. matrix
+        if (m_bDebug) {
+            xPr.dumpData();
+        }
+        xPr.invert(); // get cov. matrix
+        if (m_bDebug) {
+            xPr.dumpData();
+        } // do not use here getCovariance due to following use of X'Y
+        m_dCovTrace = xPr.trace();
+        m_dCovAbsDet = xPr.absdet();
+        final ifMatrixTransform yPr = m_cXMatrix.transposeProduct(m_cYMatrix);
+        m_cXRes = xPr.product(yPr);
+    }
+
     /**
      * just for debugging - reading from files and apply LSM
      */
@@ -15,6 +15,17 @@ public interface ifMatrixTransform extends ifMatrixData {
 
     ifMatrixTransform product(ifMatrixTransform right);
 
+    /**
+     * @param right - matrix with the same number of rows
+     * @return - this' * right, the transposed matrix is not built
+     */
+    ifMatrixTransform transposeProduct(ifMatrixTransform right);
+
+    /**
+     * @return - this' * this (e.g. information matrix), the transposed matrix is not built
+     */
+    ifMatrixTransform gram();
+
     ifMatrixTransform subtract(ifMatrixTransform right);
 
     void invert();
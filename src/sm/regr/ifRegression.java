@@ -10,6 +10,13 @@ import sm.base.data.ifMatrixData;
  * Y = AX
  */
 public interface ifRegression {
+    // solvers of the normal equations:
+    int c_iInversion = 0; // explicit inversion of the inform. matrix X'X
+    int c_iCholesky = 1;  // Cholesky factorization of X'X, QR for ill-conditioned X'X
+    int c_iQR = 2;        // Householder QR factorization of X
+
+    void setSolver(int iSolver);
+
     ifMatrixData getRegressors();
 
     void buildRegression();
@@ -17,4 +24,14 @@ public interface ifRegression {
     double getVariance();
 
     ifMatrixData getEstimatedOutput();
+
+    /**
+     * @return - trace of the covariance matrix inv(X'X) of the built regression
+     */
+    double getCovarianceTrace();
+
+    /**
+     * @return - absolute determinant of the covariance matrix inv(X'X) of the built regression
+     */
+    double getCovarianceAbsDet();
 }